@@ -0,0 +1,155 @@
+package it.unisannio.studenti.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grammar.PL0Lexer;
+import grammar.PL0Parser;
+
+import it.unisannio.studenti.ast.ASTJsonSerializer;
+import it.unisannio.studenti.ast.PL0Resolver;
+import it.unisannio.studenti.ast.constructs.Program;
+import it.unisannio.studenti.codegen.ASTCodeGenerator;
+import it.unisannio.studenti.codegen.IrCodeGenerator;
+import it.unisannio.studenti.codegen.PeepholeOptimizer;
+import it.unisannio.studenti.driver.TwoStageParser;
+import it.unisannio.studenti.errors.SyntaxErrorListener;
+import it.unisannio.studenti.ir.IrBuilder;
+import it.unisannio.studenti.ir.IrProgram;
+import it.unisannio.studenti.json.ByteBufferJsonSink;
+import it.unisannio.studenti.optimizer.IrOptimizer;
+import it.unisannio.studenti.symbolTable.Identifiers;
+import it.unisannio.studenti.symbolTable.InterningTokenFactory;
+import it.unisannio.studenti.symbolTable.SymbolTable;
+
+/**
+ * One benchmark per compiler phase, each measured in isolation on the output
+ * of the previous phases (prepared once per trial).
+ * Run with {@code ./gradlew :app:jmh}; the GC profiler reports allocation
+ * rate and bytes allocated per operation next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompilerPhaseBenchmark {
+
+    @Param({"factorial.pl0", "sum10.pl0"})
+    public String example;
+
+    @Param({"1", "100", "30000"})
+    public int copies;
+
+    private String source;
+    private CommonTokenStream tokens;
+    private PL0Parser parser;
+    private PL0Parser twoStageParser;
+    private ParseTree tree;
+    private final Identifiers identifiers = new Identifiers();
+    private Program ast;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = ScaledPrograms.load(example, copies);
+
+        PL0Lexer lexer = new PL0Lexer(CharStreams.fromString(source));
+        lexer.setTokenFactory(new InterningTokenFactory(identifiers, PL0Lexer.IDENTIFIER));
+        tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        parser = new PL0Parser(tokens);
+        tree = parser.program();
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            throw new IllegalStateException("Benchmark input does not parse: " + example + " x" + copies);
+        }
+
+        twoStageParser = new PL0Parser(tokens);
+
+        ast = (Program) new PL0Resolver(new SymbolTable(identifiers, System.err)).visit(tree);
+    }
+
+    @Benchmark
+    public CommonTokenStream lex() {
+        CharStream input = CharStreams.fromString(source);
+        PL0Lexer lexer = new PL0Lexer(input);
+        lexer.setTokenFactory(new InterningTokenFactory(new Identifiers(), PL0Lexer.IDENTIFIER));
+        CommonTokenStream stream = new CommonTokenStream(lexer);
+        stream.fill();
+        return stream;
+    }
+
+    @Benchmark
+    public ParseTree parse() {
+        tokens.seek(0);
+        parser.setTokenStream(tokens);
+        return parser.program();
+    }
+
+    @Benchmark
+    public ParseTree parseTwoStage() {
+        tokens.seek(0);
+        twoStageParser.setTokenStream(tokens);
+        return new TwoStageParser(twoStageParser).parse(new SyntaxErrorListener());
+    }
+
+    @Benchmark
+    public Object resolve() {
+        return new PL0Resolver(new SymbolTable(identifiers, System.err)).visit(tree);
+    }
+
+    @Benchmark
+    public long serializeAst() throws IOException {
+        ByteBufferJsonSink sink = new ByteBufferJsonSink(Channels.newChannel(OutputStream.nullOutputStream()));
+        ASTJsonSerializer.write(ast, sink, true);
+        return sink.getBytesWritten();
+    }
+
+    @Benchmark
+    public String generateCode() {
+        ASTCodeGenerator generator = new ASTCodeGenerator();
+        generator.visit(ast);
+        return generator.getAssembly();
+    }
+
+    @Benchmark
+    public String generateOptimizedCode() {
+        ASTCodeGenerator generator = new ASTCodeGenerator(true);
+        generator.visit(ast);
+        generator.optimize(new PeepholeOptimizer());
+        return generator.getAssembly();
+    }
+
+    @Benchmark
+    public String generateCodeFromIr() {
+        IrCodeGenerator generator = new IrCodeGenerator();
+        generator.generate(IrBuilder.build(ast));
+        return generator.getAssembly();
+    }
+
+    @Benchmark
+    public IrProgram optimizeIr() {
+        IrProgram ir = IrBuilder.build(ast);
+        new IrOptimizer().apply(ir);
+        return ir;
+    }
+}
@@ -0,0 +1,417 @@
+package it.unisannio.studenti.ast;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import it.unisannio.studenti.ast.constructs.*;
+import it.unisannio.studenti.json.AppendableJsonSink;
+import it.unisannio.studenti.json.JsonSink;
+
+/**
+ * Streams the JSON representation of an AST (the {@code -ast.json} artifact)
+ * into a {@link JsonSink} while visiting the tree, without building the
+ * document in memory.
+ * <p>
+ * The pretty mode produces exactly the layout of the original {@code toJson}
+ * methods (two-space indentation, leaf nodes on one line); the compact mode
+ * drops every optional space and newline.
+ */
+public class ASTJsonSerializer implements ASTVisitor<Void> {
+    private final JsonSink out;
+    private final boolean pretty;
+    private int indent;
+
+    public ASTJsonSerializer(JsonSink out, boolean pretty) {
+        this(out, pretty, 0);
+    }
+
+    public ASTJsonSerializer(JsonSink out, boolean pretty, int indent) {
+        this.out = out;
+        this.pretty = pretty;
+        this.indent = indent;
+    }
+
+    /**
+     * Writes a whole tree and flushes the sink.
+     */
+    public static void write(ASTNode node, JsonSink out, boolean pretty) throws IOException {
+        try {
+            node.accept(new ASTJsonSerializer(out, pretty));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Pretty JSON of a node as a String, its first line indented by {@code indent} levels.
+     */
+    public static String toJson(ASTNode node, int indent) {
+        StringBuilder sb = new StringBuilder();
+        node.accept(new ASTJsonSerializer(new AppendableJsonSink(sb), true, indent));
+        return sb.toString();
+    }
+
+    @Override
+    public Void visit(Program program) {
+        beginObject("Program");
+        field("block");
+        child(program.getBlock(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(Block block) {
+        beginObject("Block");
+        field("constants");
+        array(block.getConsts());
+        endField(false);
+        field("variables");
+        array(block.getVars());
+        endField(false);
+        field("procedures");
+        array(block.getProcs());
+        endField(false);
+        field("statement");
+        child(block.getStatement(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(ConstDeclaration decl) {
+        beginLeaf("ConstDeclaration");
+        leafField("name");
+        string(decl.getName());
+        leafField("value");
+        number(decl.getValue());
+        endLeaf();
+        return null;
+    }
+
+    @Override
+    public Void visit(VarDeclaration decl) {
+        beginLeaf("VarDeclaration");
+        leafField("name");
+        string(decl.getName());
+        endLeaf();
+        return null;
+    }
+
+    @Override
+    public Void visit(ProcedureDeclaration decl) {
+        beginObject("ProcedureDeclaration");
+        field("name");
+        string(decl.getName());
+        endField(false);
+        field("block");
+        child(decl.getBlock(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(AssignmentStatement stmt) {
+        beginObject("AssignmentStatement");
+        field("variable");
+        string(stmt.getVariable());
+        endField(false);
+        field("expression");
+        child(stmt.getExpression(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(CallStatement stmt) {
+        beginLeaf("CallStatement");
+        leafField("procedure");
+        string(stmt.getProcedureName());
+        endLeaf();
+        return null;
+    }
+
+    @Override
+    public Void visit(BeginStatement stmt) {
+        beginObject("BeginStatement");
+        field("statements");
+        array(stmt.getStatements());
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(IfStatement stmt) {
+        beginObject("IfStatement");
+        field("condition");
+        child(stmt.getCondition(), 1);
+        endField(false);
+        field("then");
+        child(stmt.getThenStatement(), 1);
+        if (stmt.getElseStatement() != null) {
+            endField(false);
+            field("else");
+            child(stmt.getElseStatement(), 1);
+        }
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(WhileStatement stmt) {
+        beginObject("WhileStatement");
+        field("condition");
+        child(stmt.getCondition(), 1);
+        endField(false);
+        field("do");
+        child(stmt.getDoStatement(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(ReadStatement stmt) {
+        beginObject("ReadStatement");
+        field("variables");
+        write('[');
+        List<String> variables = stmt.getVariables();
+        for (int i = 0; i < variables.size(); i++) {
+            if (i > 0) {
+                write(',');
+                space();
+            }
+            string(variables.get(i));
+        }
+        write(']');
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(WriteStatement stmt) {
+        beginObject("WriteStatement");
+        field("expressions");
+        array(stmt.getExpressions());
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(SkipStatement stmt) {
+        beginLeaf("SkipStatement");
+        endLeaf();
+        return null;
+    }
+
+    @Override
+    public Void visit(BinaryExpression expr) {
+        return binary("BinaryExpression", expr.getLeft(), expr.getOperator(), expr.getRight());
+    }
+
+    @Override
+    public Void visit(UnaryExpression expr) {
+        beginObject("UnaryExpression");
+        field("operator");
+        string(expr.getOperator());
+        endField(false);
+        field("operand");
+        child(expr.getOperand(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(NumberLiteral expr) {
+        beginLeaf("NumberLiteral");
+        leafField("value");
+        number(expr.getValue());
+        endLeaf();
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableAccess expr) {
+        beginLeaf("VariableAccess");
+        leafField("name");
+        string(expr.getName());
+        endLeaf();
+        return null;
+    }
+
+    @Override
+    public Void visit(OddCondition cond) {
+        beginObject("OddCondition");
+        field("expression");
+        child(cond.getExpression(), 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    @Override
+    public Void visit(RelationalCondition cond) {
+        return binary("RelationalCondition", cond.getLeft(), cond.getOperator(), cond.getRight());
+    }
+
+    private Void binary(String type, ASTNode left, String operator, ASTNode right) {
+        beginObject(type);
+        field("left");
+        child(left, 1);
+        endField(false);
+        field("operator");
+        string(operator);
+        endField(false);
+        field("right");
+        child(right, 1);
+        endField(true);
+        endObject();
+        return null;
+    }
+
+    // --- Layout primitives ---
+
+    /** Opens a multi-line object and writes its "type" field. */
+    private void beginObject(String type) {
+        indent();
+        write('{');
+        newline();
+        field("type");
+        string(type);
+        endField(false);
+    }
+
+    private void endObject() {
+        indent();
+        write('}');
+    }
+
+    /** Writes the name of a field of a multi-line object. */
+    private void field(String name) {
+        if (pretty) {
+            indent();
+            write("  ");
+        }
+        string(name);
+        write(':');
+        space();
+    }
+
+    private void endField(boolean last) {
+        if (!last) {
+            write(',');
+        }
+        newline();
+    }
+
+    /** Opens a one-line object and writes its "type" field. */
+    private void beginLeaf(String type) {
+        indent();
+        write('{');
+        space();
+        string("type");
+        write(':');
+        space();
+        string(type);
+    }
+
+    private void leafField(String name) {
+        write(',');
+        space();
+        string(name);
+        write(':');
+        space();
+    }
+
+    private void endLeaf() {
+        space();
+        write('}');
+    }
+
+    /** Writes an array of nodes, one per line, two levels deeper than the enclosing object. */
+    private void array(List<? extends ASTNode> nodes) {
+        write('[');
+        newline();
+        for (int i = 0; i < nodes.size(); i++) {
+            child(nodes.get(i), 2);
+            if (i < nodes.size() - 1) {
+                write(',');
+            }
+            newline();
+        }
+        if (pretty) {
+            indent();
+            write("  ");
+        }
+        write(']');
+    }
+
+    private void child(ASTNode node, int levels) {
+        indent += levels;
+        node.accept(this);
+        indent -= levels;
+    }
+
+    private void string(String text) {
+        write('"');
+        write(text);
+        write('"');
+    }
+
+    private void number(int value) {
+        try {
+            out.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void indent() {
+        if (pretty) {
+            try {
+                out.writeSpaces(indent * 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void newline() {
+        if (pretty) {
+            write('\n');
+        }
+    }
+
+    private void space() {
+        if (pretty) {
+            write(' ');
+        }
+    }
+
+    private void write(char c) {
+        try {
+            out.write(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String text) {
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package it.unisannio.studenti.ast;
+
+import it.unisannio.studenti.ast.constructs.*;
+
+/**
+ * Counts the nodes of an AST (used by the --stats report).
+ */
+public class ASTNodeCounter implements ASTVisitor<Integer> {
+
+    public static int count(ASTNode node) {
+        return node.accept(new ASTNodeCounter());
+    }
+
+    @Override
+    public Integer visit(Program program) {
+        return 1 + program.getBlock().accept(this);
+    }
+
+    @Override
+    public Integer visit(Block block) {
+        int count = 1;
+        for (ConstDeclaration c : block.getConsts()) count += c.accept(this);
+        for (VarDeclaration v : block.getVars()) count += v.accept(this);
+        for (ProcedureDeclaration p : block.getProcs()) count += p.accept(this);
+        return count + block.getStatement().accept(this);
+    }
+
+    @Override
+    public Integer visit(ConstDeclaration decl) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(VarDeclaration decl) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(ProcedureDeclaration decl) {
+        return 1 + decl.getBlock().accept(this);
+    }
+
+    @Override
+    public Integer visit(AssignmentStatement stmt) {
+        return 1 + stmt.getExpression().accept(this);
+    }
+
+    @Override
+    public Integer visit(CallStatement stmt) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(BeginStatement stmt) {
+        int count = 1;
+        for (Statement s : stmt.getStatements()) count += s.accept(this);
+        return count;
+    }
+
+    @Override
+    public Integer visit(IfStatement stmt) {
+        int count = 1 + stmt.getCondition().accept(this) + stmt.getThenStatement().accept(this);
+        if (stmt.getElseStatement() != null) count += stmt.getElseStatement().accept(this);
+        return count;
+    }
+
+    @Override
+    public Integer visit(WhileStatement stmt) {
+        return 1 + stmt.getCondition().accept(this) + stmt.getDoStatement().accept(this);
+    }
+
+    @Override
+    public Integer visit(ReadStatement stmt) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(WriteStatement stmt) {
+        int count = 1;
+        for (Expression e : stmt.getExpressions()) count += e.accept(this);
+        return count;
+    }
+
+    @Override
+    public Integer visit(SkipStatement stmt) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(BinaryExpression expr) {
+        return 1 + expr.getLeft().accept(this) + expr.getRight().accept(this);
+    }
+
+    @Override
+    public Integer visit(UnaryExpression expr) {
+        return 1 + expr.getOperand().accept(this);
+    }
+
+    @Override
+    public Integer visit(NumberLiteral expr) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(VariableAccess expr) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(OddCondition cond) {
+        return 1 + cond.getExpression().accept(this);
+    }
+
+    @Override
+    public Integer visit(RelationalCondition cond) {
+        return 1 + cond.getLeft().accept(this) + cond.getRight().accept(this);
+    }
+}
@@ -0,0 +1,290 @@
+package it.unisannio.studenti.ast;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import grammar.PL0BaseVisitor;
+import grammar.PL0Parser;
+
+import it.unisannio.studenti.ast.constructs.*;
+import it.unisannio.studenti.symbolTable.InternedToken;
+import it.unisannio.studenti.symbolTable.Slot;
+import it.unisannio.studenti.symbolTable.Symbol;
+import it.unisannio.studenti.symbolTable.SymbolKind;
+import it.unisannio.studenti.symbolTable.SymbolTable;
+
+/**
+ * Single pass over the parse tree that builds the scopes of the symbol table,
+ * performs the semantic checks and constructs the AST. Every identifier use
+ * in the resulting AST carries its resolved {@link Slot} (the symbol plus its
+ * storage as seen from the use site), and every block its nesting level and
+ * frame size, so later phases need no name lookups.
+ * <p>
+ * The constants, variables and procedures of a block are declared before the
+ * bodies of its procedures are resolved, so a procedure can call any procedure
+ * of the enclosing blocks, including the ones declared after it.
+ */
+public class PL0Resolver extends PL0BaseVisitor<Object> {
+    private final SymbolTable symbolTable;
+    private final PrintStream err;
+    private int errorCount = 0;
+
+    public PL0Resolver(SymbolTable symbolTable) {
+        this(symbolTable, System.err);
+    }
+
+    public PL0Resolver(SymbolTable symbolTable, PrintStream err) {
+        this.symbolTable = symbolTable;
+        this.err = err;
+    }
+
+    /**
+     * @return the number of semantic errors, including duplicate declarations
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    private void reportError(String message) {
+        err.println(message);
+        errorCount++;
+    }
+
+    /**
+     * @return the interned ID of an identifier, taken from the token when the
+     *         lexer used an {@link it.unisannio.studenti.symbolTable.InterningTokenFactory}
+     */
+    private int nameId(TerminalNode id) {
+        Token token = id.getSymbol();
+        if (token instanceof InternedToken) {
+            return ((InternedToken) token).getNameId();
+        }
+        return symbolTable.getIdentifiers().intern(token.getText());
+    }
+
+    private Symbol declare(TerminalNode id, SymbolKind kind, Integer value) {
+        Symbol symbol = symbolTable.declare(nameId(id), kind, value);
+        if (symbol == null) {
+            errorCount++; // Already reported by the symbol table
+        }
+        return symbol;
+    }
+
+    /**
+     * Storage of a resolved symbol as seen from the current scope, null for unresolved names.
+     */
+    private Slot slotOf(Symbol symbol) {
+        return symbol != null ? new Slot(symbol, symbolTable.getCurrentNestingLevel()) : null;
+    }
+
+    // --- Declarations ---
+
+    @Override
+    public Object visitProgram(PL0Parser.ProgramContext ctx) {
+        return new Program((Block) visit(ctx.block()));
+    }
+
+    @Override
+    public Object visitBlock(PL0Parser.BlockContext ctx) {
+        List<ConstDeclaration> consts = new ArrayList<>();
+        PL0Parser.ConstDeclarationContext constCtx = ctx.constDeclaration();
+        if (constCtx != null) {
+            for (int i = 0; i < constCtx.IDENTIFIER().size(); i++) {
+                TerminalNode id = constCtx.IDENTIFIER(i);
+                String name = id.getText();
+                int value = Integer.parseInt(constCtx.NUMBER(i).getText());
+                declare(id, SymbolKind.CONST, value);
+                consts.add(new ConstDeclaration(name, value));
+            }
+        }
+
+        List<VarDeclaration> vars = new ArrayList<>();
+        if (ctx.varDeclaration() != null) {
+            for (TerminalNode id : ctx.varDeclaration().IDENTIFIER()) {
+                declare(id, SymbolKind.VAR, null);
+                vars.add(new VarDeclaration(id.getText()));
+            }
+        }
+
+        List<PL0Parser.ProcedureDeclarationContext> procCtxs = ctx.procedureDeclaration();
+        List<Symbol> procSymbols = new ArrayList<>(procCtxs.size());
+        for (PL0Parser.ProcedureDeclarationContext p : procCtxs) {
+            procSymbols.add(declare(p.IDENTIFIER(), SymbolKind.PROCEDURE, null));
+        }
+
+        List<ProcedureDeclaration> procs = new ArrayList<>(procCtxs.size());
+        for (int i = 0; i < procCtxs.size(); i++) {
+            PL0Parser.ProcedureDeclarationContext p = procCtxs.get(i);
+            symbolTable.enterNewScope();
+            Block body = (Block) visit(p.block());
+            symbolTable.exitScope();
+            procs.add(new ProcedureDeclaration(p.IDENTIFIER().getText(), body, procSymbols.get(i)));
+        }
+
+        Statement stmt = (Statement) visit(ctx.statement());
+
+        return new Block(consts, vars, procs, stmt, symbolTable.getCurrentNestingLevel(), symbolTable.getLocalsSize());
+    }
+
+    // --- Statements ---
+
+    @Override
+    public Object visitStatement(PL0Parser.StatementContext ctx) {
+        return visit(ctx.getChild(0));
+    }
+
+    @Override
+    public Object visitAssignmentStatement(PL0Parser.AssignmentStatementContext ctx) {
+        String name = ctx.IDENTIFIER().getText();
+        Symbol symbol = symbolTable.lookup(nameId(ctx.IDENTIFIER()));
+        if (symbol == null) {
+            reportError("Semantic Error: Assignment to undeclared identifier '" + name + "'");
+        } else if (symbol.getKind() != SymbolKind.VAR) {
+            reportError("Semantic Error: Assignment to " + symbol.getKind() + " '" + name + "' is not allowed.");
+        }
+        Expression expr = (Expression) visit(ctx.expression());
+        return new AssignmentStatement(name, expr, slotOf(symbol));
+    }
+
+    @Override
+    public Object visitCallStatement(PL0Parser.CallStatementContext ctx) {
+        String name = ctx.IDENTIFIER().getText();
+        Symbol symbol = symbolTable.lookup(nameId(ctx.IDENTIFIER()));
+        if (symbol == null) {
+            reportError("Semantic Error: Call to undeclared procedure '" + name + "'");
+        } else if (symbol.getKind() != SymbolKind.PROCEDURE) {
+            reportError("Semantic Error: Call to " + symbol.getKind() + " '" + name + "' is not allowed. Expected PROCEDURE.");
+        }
+        return new CallStatement(name, slotOf(symbol));
+    }
+
+    @Override
+    public Object visitBeginStatement(PL0Parser.BeginStatementContext ctx) {
+        List<Statement> stmts = new ArrayList<>();
+        for (PL0Parser.StatementContext s : ctx.statement()) {
+            stmts.add((Statement) visit(s));
+        }
+        return new BeginStatement(stmts);
+    }
+
+    @Override
+    public Object visitIfStatement(PL0Parser.IfStatementContext ctx) {
+        Condition cond = (Condition) visit(ctx.condition());
+        Statement thenStmt = (Statement) visit(ctx.statement(0));
+        Statement elseStmt = null;
+        if (ctx.statement().size() > 1) {
+            elseStmt = (Statement) visit(ctx.statement(1));
+        }
+        return new IfStatement(cond, thenStmt, elseStmt);
+    }
+
+    @Override
+    public Object visitWhileStatement(PL0Parser.WhileStatementContext ctx) {
+        Condition cond = (Condition) visit(ctx.condition());
+        Statement doStmt = (Statement) visit(ctx.statement());
+        return new WhileStatement(cond, doStmt);
+    }
+
+    @Override
+    public Object visitReadStatement(PL0Parser.ReadStatementContext ctx) {
+        List<String> vars = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        for (TerminalNode id : ctx.IDENTIFIER()) {
+            String name = id.getText();
+            Symbol symbol = symbolTable.lookup(nameId(id));
+            if (symbol == null) {
+                reportError("Semantic Error: READ into undeclared identifier '" + name + "'");
+            } else if (symbol.getKind() != SymbolKind.VAR) {
+                reportError("Semantic Error: READ into " + symbol.getKind() + " '" + name + "' is not allowed. Expected VAR.");
+            }
+            vars.add(name);
+            slots.add(slotOf(symbol));
+        }
+        return new ReadStatement(vars, slots);
+    }
+
+    @Override
+    public Object visitWriteStatement(PL0Parser.WriteStatementContext ctx) {
+        List<Expression> exprs = new ArrayList<>();
+        for (PL0Parser.ExpressionContext e : ctx.expression()) {
+            exprs.add((Expression) visit(e));
+        }
+        return new WriteStatement(exprs);
+    }
+
+    @Override
+    public Object visitSkipStatement(PL0Parser.SkipStatementContext ctx) {
+        return new SkipStatement();
+    }
+
+    // --- Expressions and Conditions ---
+
+    @Override
+    public Object visitCondition(PL0Parser.ConditionContext ctx) {
+        if (ctx.K_ODD() != null) {
+            return new OddCondition((Expression) visit(ctx.expression(0)));
+        } else {
+            Expression left = (Expression) visit(ctx.expression(0));
+            String op = ctx.relation().getText();
+            Expression right = (Expression) visit(ctx.expression(1));
+            return new RelationalCondition(left, op, right);
+        }
+    }
+
+    @Override
+    public Object visitExpression(PL0Parser.ExpressionContext ctx) {
+        // Children: [('+'|'-')] term (('+'|'-') term)*
+        int i = 0;
+        String sign = null;
+        if (ctx.getChild(0) instanceof TerminalNode) {
+            sign = ctx.getChild(0).getText();
+            i++;
+        }
+        Expression currentExpr = (Expression) visit(ctx.getChild(i++));
+        if (sign != null) {
+            currentExpr = new UnaryExpression(sign, currentExpr);
+        }
+        return binaryChain(ctx, i, currentExpr);
+    }
+
+    @Override
+    public Object visitTerm(PL0Parser.TermContext ctx) {
+        // Children: factor (('*'|'/') factor)*
+        return binaryChain(ctx, 1, (Expression) visit(ctx.getChild(0)));
+    }
+
+    /**
+     * Folds the (operator operand)* children starting at index {@code i} into a left-associative chain.
+     */
+    private Expression binaryChain(ParseTree ctx, int i, Expression left) {
+        for (; i + 1 < ctx.getChildCount(); i += 2) {
+            String op = ctx.getChild(i).getText();
+            Expression right = (Expression) visit(ctx.getChild(i + 1));
+            left = new BinaryExpression(left, op, right);
+        }
+        return left;
+    }
+
+    @Override
+    public Object visitFactor(PL0Parser.FactorContext ctx) {
+        if (ctx.IDENTIFIER() != null) {
+            String name = ctx.IDENTIFIER().getText();
+            Symbol symbol = symbolTable.lookup(nameId(ctx.IDENTIFIER()));
+            if (symbol == null) {
+                reportError("Semantic Error: Use of undeclared identifier '" + name + "'");
+            } else if (symbol.getKind() == SymbolKind.PROCEDURE) {
+                reportError("Semantic Error: Procedure '" + name + "' cannot be used in an expression.");
+            }
+            return new VariableAccess(name, slotOf(symbol));
+        } else if (ctx.NUMBER() != null) {
+            return new NumberLiteral(Integer.parseInt(ctx.NUMBER().getText()));
+        } else {
+            return visit(ctx.expression());
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package it.unisannio.studenti.ast.constructs;
 
+import it.unisannio.studenti.ast.ASTJsonSerializer;
 import it.unisannio.studenti.ast.ASTVisitor;
 
 public interface ASTNode {
-    String toJson(int indent);
     <T> T accept(ASTVisitor<T> visitor);
-    
-    default String getIndent(int indent) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < indent; i++) sb.append("  ");
-        return sb.toString();
+
+    /**
+     * Pretty JSON of this subtree. Large trees should rather be streamed
+     * with {@link ASTJsonSerializer#write}.
+     */
+    default String toJson(int indent) {
+        return ASTJsonSerializer.toJson(this, indent);
     }
 }
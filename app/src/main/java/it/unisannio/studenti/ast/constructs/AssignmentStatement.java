@@ -1,33 +1,31 @@
 package it.unisannio.studenti.ast.constructs;
 
 import it.unisannio.studenti.ast.ASTVisitor;
+import it.unisannio.studenti.symbolTable.Slot;
+import it.unisannio.studenti.symbolTable.Symbol;
 
 public class AssignmentStatement implements Statement {
     private String variable;
     private Expression expression;
+    private Slot slot; // Resolved variable, null before name resolution
 
     public AssignmentStatement(String variable, Expression expression) {
+        this(variable, expression, null);
+    }
+
+    public AssignmentStatement(String variable, Expression expression, Slot slot) {
         this.variable = variable;
         this.expression = expression;
+        this.slot = slot;
     }
 
     public String getVariable() { return variable; }
     public Expression getExpression() { return expression; }
+    public Slot getSlot() { return slot; }
+    public Symbol getSymbol() { return slot != null ? slot.getSymbol() : null; }
 
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        StringBuilder sb = new StringBuilder();
-        sb.append(ind).append("{\n");
-        sb.append(ind).append("  \"type\": \"AssignmentStatement\",\n");
-        sb.append(ind).append("  \"variable\": \"").append(variable).append("\",\n");
-        sb.append(ind).append("  \"expression\": ").append(expression.toJson(indent + 1)).append("\n");
-        sb.append(ind).append("}");
-        return sb.toString();
-    }
 }
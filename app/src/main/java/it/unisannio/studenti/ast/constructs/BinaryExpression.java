@@ -21,17 +21,4 @@ public class BinaryExpression implements Expression {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        StringBuilder sb = new StringBuilder();
-        sb.append(ind).append("{\n");
-        sb.append(ind).append("  \"type\": \"BinaryExpression\",\n");
-        sb.append(ind).append("  \"left\": ").append(left.toJson(indent + 1)).append(",\n");
-        sb.append(ind).append("  \"operator\": \"").append(operator).append("\",\n");
-        sb.append(ind).append("  \"right\": ").append(right.toJson(indent + 1)).append("\n");
-        sb.append(ind).append("}");
-        return sb.toString();
-    }
 }
@@ -1,24 +1,28 @@
 package it.unisannio.studenti.ast.constructs;
 
 import it.unisannio.studenti.ast.ASTVisitor;
+import it.unisannio.studenti.symbolTable.Slot;
+import it.unisannio.studenti.symbolTable.Symbol;
 
 public class CallStatement implements Statement {
     private String procedureName;
+    private Slot slot; // Resolved procedure, null before name resolution
 
     public CallStatement(String procedureName) {
+        this(procedureName, null);
+    }
+
+    public CallStatement(String procedureName, Slot slot) {
         this.procedureName = procedureName;
+        this.slot = slot;
     }
 
     public String getProcedureName() { return procedureName; }
+    public Slot getSlot() { return slot; }
+    public Symbol getSymbol() { return slot != null ? slot.getSymbol() : null; }
 
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        return ind + "{ \"type\": \"CallStatement\", \"procedure\": \"" + procedureName + "\" }";
-    }
 }
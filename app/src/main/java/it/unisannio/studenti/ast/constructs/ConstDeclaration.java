@@ -18,10 +18,4 @@ public class ConstDeclaration implements ASTNode {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        return ind + "{ \"type\": \"ConstDeclaration\", \"name\": \"" + name + "\", \"value\": " + value + " }";
-    }
 }
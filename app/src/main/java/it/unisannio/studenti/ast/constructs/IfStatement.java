@@ -21,22 +21,4 @@ public class IfStatement implements Statement {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        StringBuilder sb = new StringBuilder();
-        sb.append(ind).append("{\n");
-        sb.append(ind).append("  \"type\": \"IfStatement\",\n");
-        sb.append(ind).append("  \"condition\": ").append(condition.toJson(indent + 1)).append(",\n");
-        sb.append(ind).append("  \"then\": ").append(thenStatement.toJson(indent + 1));
-        if (elseStatement != null) {
-            sb.append(",\n");
-            sb.append(ind).append("  \"else\": ").append(elseStatement.toJson(indent + 1)).append("\n");
-        } else {
-            sb.append("\n");
-        }
-        sb.append(ind).append("}");
-        return sb.toString();
-    }
 }
@@ -15,10 +15,4 @@ public class NumberLiteral implements Expression {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        return ind + "{ \"type\": \"NumberLiteral\", \"value\": " + value + " }";
-    }
 }
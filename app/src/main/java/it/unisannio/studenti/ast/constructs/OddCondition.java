@@ -15,15 +15,4 @@ public class OddCondition implements Condition {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        StringBuilder sb = new StringBuilder();
-        sb.append(ind).append("{\n");
-        sb.append(ind).append("  \"type\": \"OddCondition\",\n");
-        sb.append(ind).append("  \"expression\": ").append(expression.toJson(indent + 1)).append("\n");
-        sb.append(ind).append("}");
-        return sb.toString();
-    }
 }
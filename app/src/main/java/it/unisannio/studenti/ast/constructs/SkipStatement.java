@@ -7,10 +7,4 @@ public class SkipStatement implements Statement {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        return ind + "{ \"type\": \"SkipStatement\" }";
-    }
 }
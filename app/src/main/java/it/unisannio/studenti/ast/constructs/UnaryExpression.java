@@ -18,16 +18,4 @@ public class UnaryExpression implements Expression {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        StringBuilder sb = new StringBuilder();
-        sb.append(ind).append("{\n");
-        sb.append(ind).append("  \"type\": \"UnaryExpression\",\n");
-        sb.append(ind).append("  \"operator\": \"").append(operator).append("\",\n");
-        sb.append(ind).append("  \"operand\": ").append(operand.toJson(indent + 1)).append("\n");
-        sb.append(ind).append("}");
-        return sb.toString();
-    }
 }
@@ -15,10 +15,4 @@ public class VarDeclaration implements ASTNode {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        return ind + "{ \"type\": \"VarDeclaration\", \"name\": \"" + name + "\" }";
-    }
 }
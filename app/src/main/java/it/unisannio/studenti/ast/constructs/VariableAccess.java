@@ -1,24 +1,28 @@
 package it.unisannio.studenti.ast.constructs;
 
 import it.unisannio.studenti.ast.ASTVisitor;
+import it.unisannio.studenti.symbolTable.Slot;
+import it.unisannio.studenti.symbolTable.Symbol;
 
 public class VariableAccess implements Expression {
     private String name;
+    private Slot slot; // Resolved variable or constant, null before name resolution
 
     public VariableAccess(String name) {
+        this(name, null);
+    }
+
+    public VariableAccess(String name, Slot slot) {
         this.name = name;
+        this.slot = slot;
     }
 
     public String getName() { return name; }
+    public Slot getSlot() { return slot; }
+    public Symbol getSymbol() { return slot != null ? slot.getSymbol() : null; }
 
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        return ind + "{ \"type\": \"VariableAccess\", \"name\": \"" + name + "\" }";
-    }
 }
@@ -18,16 +18,4 @@ public class WhileStatement implements Statement {
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
     }
-
-    @Override
-    public String toJson(int indent) {
-        String ind = getIndent(indent);
-        StringBuilder sb = new StringBuilder();
-        sb.append(ind).append("{\n");
-        sb.append(ind).append("  \"type\": \"WhileStatement\",\n");
-        sb.append(ind).append("  \"condition\": ").append(condition.toJson(indent + 1)).append(",\n");
-        sb.append(ind).append("  \"do\": ").append(doStatement.toJson(indent + 1)).append("\n");
-        sb.append(ind).append("}");
-        return sb.toString();
-    }
 }
@@ -1,60 +1,234 @@
 package it.unisannio.studenti.codegen;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import it.unisannio.studenti.ast.*;
 import it.unisannio.studenti.ast.constructs.*;
-import it.unisannio.studenti.symbolTable.Symbol;
-import it.unisannio.studenti.symbolTable.SymbolKind;
-import it.unisannio.studenti.symbolTable.SymbolTable;
-
+import it.unisannio.studenti.symbolTable.Slot;
+
+/**
+ * Generates x86-64 assembly from a resolved AST (see {@link PL0Resolver}):
+ * identifiers are not looked up, their frame slots are read from the nodes.
+ * <p>
+ * Expressions are compiled in one of two modes. The stack mode pushes every
+ * operand and pops both operands of every operator. The register mode keeps
+ * values in a small pool of scratch registers, evaluates first the operand
+ * needing more registers (Sethi-Ullman numbering), uses literals and
+ * variables directly as instruction operands and spills to the stack only
+ * when the pool runs out.
+ * <p>
+ * In both modes the conditions of IF and WHILE are compiled as jumps: a
+ * relation is one compare followed by one conditional jump, and loops test
+ * their condition at the bottom.
+ * <p>
+ * The stack mode follows the static chain on every non-local access. The
+ * register mode reads the enclosing frame from the static link at -8(%rbp)
+ * and caches the frames further out in hidden slots below the locals, filled
+ * once at the start of the block: a non-local access costs one load to reach
+ * its frame.
+ * <p>
+ * The output is a list of {@link Instruction}s, printed by {@link #getAssembly()}
+ * and optionally rewritten first by a {@link PeepholeOptimizer}.
+ */
 public class ASTCodeGenerator implements ASTVisitor<Void> {
-	private final SymbolTable symbolTable;
-	private final StringBuilder asm = new StringBuilder();
+	/** Scratch registers for expression values: %rax and %rdx are reserved for idiv, %rbx for frame pointers, %r10 for static links. */
+	private static final String[] POOL = {"%rcx", "%rsi", "%rdi", "%r8", "%r9", "%r11"};
+	/** Pseudo-operator of {@link #evaluateBinary}: compares the operands, only setting the flags. */
+	private static final String COMPARE = "cmp";
+
+	private List<Instruction> code = new ArrayList<>();
+	private final boolean registerExpressions;
+	private final boolean[] busy = new boolean[POOL.length];
+	/** Offsets of the cached frame pointers of the current block by level delta, 0 where not cached. */
+	private int[] frameSlots = new int[0];
 	private int labelCounter = 0;
 
-	public ASTCodeGenerator(SymbolTable symbolTable) {
-		this.symbolTable = symbolTable;
+	/**
+	 * Generator using the stack mode for expressions.
+	 */
+	public ASTCodeGenerator() {
+		this(false);
+	}
+
+	/**
+	 * @param registerExpressions true to evaluate expressions in registers, false to use the stack
+	 */
+	public ASTCodeGenerator(boolean registerExpressions) {
+		this.registerExpressions = registerExpressions;
+	}
+
+	public List<Instruction> getInstructions() {
+		return code;
 	}
 
 	public String getAssembly() {
-		return asm.toString();
+		return Instruction.toAssembly(code);
+	}
+
+	public int getInstructionCount() {
+		return Instruction.countInstructions(code);
+	}
+
+	/**
+	 * Rewrites the generated code with a peephole optimizer.
+	 */
+	public void optimize(PeepholeOptimizer optimizer) {
+		code = optimizer.apply(code);
 	}
 
 	private String newLabel() {
 		return "L" + (labelCounter++);
 	}
 
-	private void emit(String instruction) {
-		asm.append("	").append(instruction).append("\n");
+	private void emit(String opcode, String... operands) {
+		code.add(Instruction.of(opcode, operands));
 	}
 
 	private void emitLabel(String label) {
-		asm.append(label).append(":\n");
+		code.add(Instruction.label(label));
+	}
+
+	/**
+	 * Loads in %rbx the frame pointer found {@code levelDelta} static links up.
+	 */
+	private void loadFramePointer(int levelDelta) {
+		emit("mov", "%rbp", "%rbx");
+		for (int i = 0; i < levelDelta; i++) {
+			emit("mov", "-8(%rbx)", "%rbx");
+		}
+	}
+
+	/**
+	 * Frame pointer register for a variable {@code levelDelta} static links up:
+	 * %rbp for locals, otherwise %rbx loaded from the static link or from the
+	 * slot caching it, or by following the chain.
+	 */
+	private String frameBase(int levelDelta) {
+		if (levelDelta == 0) {
+			return "%rbp";
+		}
+		if (levelDelta == 1 && registerExpressions) {
+			emit("mov", "-8(%rbp)", "%rbx");
+		} else if (levelDelta < frameSlots.length && frameSlots[levelDelta] != 0) {
+			emit("mov", frameSlots[levelDelta] + "(%rbp)", "%rbx");
+		} else {
+			loadFramePointer(levelDelta);
+		}
+		return "%rbx";
+	}
+
+	/**
+	 * Assigns a hidden slot below the locals to every frame more than one
+	 * static link up accessed by the statement of a block.
+	 *
+	 * @return the slot offsets by level delta, 0 where not cached
+	 */
+	private static int[] assignFrameSlots(Block block) {
+		boolean[] used = new boolean[block.getNestingLevel() + 1];
+		collectLevelDeltas(block.getStatement(), used);
+		int[] slots = new int[used.length];
+		int offset = -16 - block.getLocalsSize();
+		for (int levelDelta = 2; levelDelta < used.length; levelDelta++) {
+			if (used[levelDelta]) {
+				slots[levelDelta] = offset;
+				offset -= 8;
+			}
+		}
+		return slots;
+	}
+
+	private static void collectLevelDeltas(Statement stmt, boolean[] used) {
+		if (stmt instanceof AssignmentStatement) {
+			AssignmentStatement assignment = (AssignmentStatement) stmt;
+			used[assignment.getSlot().getLevelDelta()] = true;
+			collectExpressionLevelDeltas(assignment.getExpression(), used);
+		} else if (stmt instanceof CallStatement) {
+			used[((CallStatement) stmt).getSlot().getLevelDelta()] = true;
+		} else if (stmt instanceof BeginStatement) {
+			for (Statement s : ((BeginStatement) stmt).getStatements()) {
+				collectLevelDeltas(s, used);
+			}
+		} else if (stmt instanceof IfStatement) {
+			IfStatement ifStmt = (IfStatement) stmt;
+			collectConditionLevelDeltas(ifStmt.getCondition(), used);
+			collectLevelDeltas(ifStmt.getThenStatement(), used);
+			if (ifStmt.getElseStatement() != null) {
+				collectLevelDeltas(ifStmt.getElseStatement(), used);
+			}
+		} else if (stmt instanceof WhileStatement) {
+			WhileStatement whileStmt = (WhileStatement) stmt;
+			collectConditionLevelDeltas(whileStmt.getCondition(), used);
+			collectLevelDeltas(whileStmt.getDoStatement(), used);
+		} else if (stmt instanceof ReadStatement) {
+			for (Slot slot : ((ReadStatement) stmt).getSlots()) {
+				used[slot.getLevelDelta()] = true;
+			}
+		} else if (stmt instanceof WriteStatement) {
+			for (Expression expr : ((WriteStatement) stmt).getExpressions()) {
+				collectExpressionLevelDeltas(expr, used);
+			}
+		}
+	}
+
+	private static void collectConditionLevelDeltas(Condition cond, boolean[] used) {
+		if (cond instanceof OddCondition) {
+			collectExpressionLevelDeltas(((OddCondition) cond).getExpression(), used);
+		} else {
+			RelationalCondition rel = (RelationalCondition) cond;
+			collectExpressionLevelDeltas(rel.getLeft(), used);
+			collectExpressionLevelDeltas(rel.getRight(), used);
+		}
 	}
 
-	private void loadFramePointer(int targetLevel) {
-		int currentLevel = symbolTable.getCurrentNestingLevel();
-		emit("mov %rbp, %rbx");
-		for (int i = 0; i < currentLevel - targetLevel; i++) {
-			emit("mov -8(%rbx), %rbx");
+	private static void collectExpressionLevelDeltas(Expression expr, boolean[] used) {
+		if (expr instanceof BinaryExpression) {
+			collectExpressionLevelDeltas(((BinaryExpression) expr).getLeft(), used);
+			collectExpressionLevelDeltas(((BinaryExpression) expr).getRight(), used);
+		} else if (expr instanceof UnaryExpression) {
+			collectExpressionLevelDeltas(((UnaryExpression) expr).getOperand(), used);
+		} else if (expr instanceof VariableAccess) {
+			Slot slot = ((VariableAccess) expr).getSlot();
+			if (!slot.isConstant()) {
+				used[slot.getLevelDelta()] = true;
+			}
+		}
+	}
+
+	/**
+	 * Fills the frame pointer cache of a block, walking the static chain once.
+	 */
+	private void fillFrameSlots(int[] slots) {
+		int last = slots.length - 1;
+		while (last >= 2 && slots[last] == 0) {
+			last--;
+		}
+		if (last < 2) {
+			return;
+		}
+		emit("mov", "-8(%rbp)", "%rbx");
+		for (int levelDelta = 2; levelDelta <= last; levelDelta++) {
+			emit("mov", "-8(%rbx)", "%rbx");
+			if (slots[levelDelta] != 0) {
+				emit("mov", "%rbx", slots[levelDelta] + "(%rbp)");
+			}
 		}
 	}
 
 	@Override
 	public Void visit(Program program) {
-		asm.append(".section .data\n");
-		asm.append("fmt_in: .string \"%ld\"\n");
-		asm.append("fmt_out: .string \"%ld\\n\"\n");
-		asm.append(".section .text\n");
-		asm.append(".global main\n");
-		asm.append("main:\n");
+		code.add(Instruction.directive(".section .text"));
+		code.add(Instruction.directive(".global main"));
+		emitLabel("main");
 
-		emit("push %rbp");
-		emit("mov %rsp, %rbp");
-		emit("push $0"); // Static link for main (level 0)
+		emit("push", "%rbp");
+		emit("mov", "%rsp", "%rbp");
+		emit("push", "$0"); // Static link for main (level 0)
 
 		program.getBlock().accept(this);
 
-		emit("mov $0, %rax");
+		emit("call", RuntimeLibrary.FLUSH);
+		emit("mov", "$0", "%rax");
 		emit("leave");
 		emit("ret");
 		return null;
@@ -62,7 +236,13 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 
 	@Override
 	public Void visit(Block block) {
-		int localsSize = symbolTable.getLocalsSize();
+		int localsSize = block.getLocalsSize();
+		int[] slots = registerExpressions ? assignFrameSlots(block) : new int[0];
+		for (int slot : slots) {
+			if (slot != 0) {
+				localsSize += 8;
+			}
+		}
 		
 		// Align stack to 16 bytes
 		// Current stack state: Return Address (8) + Saved RBP (8) + Static Link (8) = 24 bytes (Misaligned by 8)
@@ -74,11 +254,11 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 		int totalStackSize = localsSize + padding;
 
 		if (totalStackSize > 0) {
-			emit("sub $" + totalStackSize + ", %rsp");
+			emit("sub", "$" + totalStackSize, "%rsp");
 		}
 
 		String startLabel = newLabel();
-		emit("jmp " + startLabel);
+		emit("jmp", startLabel);
 
 		// Visit procedures
 		for (ProcedureDeclaration proc : block.getProcs()) {
@@ -86,6 +266,8 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 		}
 
 		emitLabel(startLabel);
+		frameSlots = slots;
+		fillFrameSlots(slots);
 		block.getStatement().accept(this);
 		return null;
 	}
@@ -106,13 +288,11 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 	public Void visit(ProcedureDeclaration decl) {
 		String name = decl.getName();
 		emitLabel("proc_" + name);
-		emit("push %rbp");
-		emit("mov %rsp, %rbp");
-		emit("push %r10"); // Save static link
+		emit("push", "%rbp");
+		emit("mov", "%rsp", "%rbp");
+		emit("push", "%r10"); // Save static link
 
-		symbolTable.enterNextChildScope();
 		decl.getBlock().accept(this);
-		symbolTable.exitScope();
 
 		emit("leave");
 		emit("ret");
@@ -121,25 +301,34 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 
 	@Override
 	public Void visit(AssignmentStatement stmt) {
+		Slot slot = stmt.getSlot();
+		if (registerExpressions) {
+			int value = evaluate(stmt.getExpression());
+			emit("mov", POOL[value], slot.getOffset() + "(" + frameBase(slot.getLevelDelta()) + ")");
+			release(value);
+			return null;
+		}
+
 		stmt.getExpression().accept(this); // Result on stack
 
-		String name = stmt.getVariable();
-		Symbol symbol = symbolTable.lookup(name);
 
-		emit("pop %rax");
-		loadFramePointer(symbol.getNestingLevel());
-		emit("mov %rax, " + symbol.getOffset() + "(%rbx)");
+		emit("pop", "%rax");
+		loadFramePointer(slot.getLevelDelta());
+		emit("mov", "%rax", slot.getOffset() + "(%rbx)");
 		return null;
 	}
 
 	@Override
 	public Void visit(CallStatement stmt) {
 		String name = stmt.getProcedureName();
-		Symbol symbol = symbolTable.lookup(name);
 
-		loadFramePointer(symbol.getNestingLevel());
-		emit("mov %rbx, %r10"); // Pass static link in r10
-		emit("call proc_" + name);
+		if (registerExpressions) {
+			emit("mov", frameBase(stmt.getSlot().getLevelDelta()), "%r10"); // Pass static link in r10
+		} else {
+			loadFramePointer(stmt.getSlot().getLevelDelta());
+			emit("mov", "%rbx", "%r10"); // Pass static link in r10
+		}
+		emit("call", "proc_" + name);
 		return null;
 	}
 
@@ -154,54 +343,50 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 	@Override
 	public Void visit(IfStatement stmt) {
 		String elseLabel = newLabel();
-		String endLabel = newLabel();
-
-		stmt.getCondition().accept(this); // Pushes 0 (false) or 1 (true)
-		emit("pop %rax");
-		emit("cmp $0, %rax");
-		emit("je " + elseLabel);
 
+		branch(stmt.getCondition(), false, elseLabel);
 		stmt.getThenStatement().accept(this);
-		emit("jmp " + endLabel);
 
-		emitLabel(elseLabel);
 		if (stmt.getElseStatement() != null) {
+			String endLabel = newLabel();
+			emit("jmp", endLabel);
+			emitLabel(elseLabel);
 			stmt.getElseStatement().accept(this);
+			emitLabel(endLabel);
+		} else {
+			emitLabel(elseLabel);
 		}
-
-		emitLabel(endLabel);
 		return null;
 	}
 
 	@Override
 	public Void visit(WhileStatement stmt) {
-		String startLabel = newLabel();
-		String endLabel = newLabel();
-
-		emitLabel(startLabel);
-		stmt.getCondition().accept(this);
-		emit("pop %rax");
-		emit("cmp $0, %rax");
-		emit("je " + endLabel);
+		String bodyLabel = newLabel();
+		String conditionLabel = newLabel();
 
+		// Condition at the bottom: one conditional jump per iteration
+		emit("jmp", conditionLabel);
+		emitLabel(bodyLabel);
 		stmt.getDoStatement().accept(this);
-		emit("jmp " + startLabel);
 
-		emitLabel(endLabel);
+		emitLabel(conditionLabel);
+		branch(stmt.getCondition(), true, bodyLabel);
 		return null;
 	}
 
 	@Override
 	public Void visit(ReadStatement stmt) {
-		for (String name : stmt.getVariables()) {
-			Symbol symbol = symbolTable.lookup(name);
-			
-			loadFramePointer(symbol.getNestingLevel());
-			// Calculate address of variable
-			emit("lea " + symbol.getOffset() + "(%rbx), %rsi"); // Address in rsi
-			emit("lea fmt_in(%rip), %rdi"); // Format string
-			emit("mov $0, %rax"); // Varargs
-			emit("call scanf@PLT"); // Use PLT for shared lib calls
+		for (Slot slot : stmt.getSlots()) {
+			String variable;
+			if (registerExpressions) {
+				variable = slot.getOffset() + "(" + frameBase(slot.getLevelDelta()) + ")";
+			} else {
+				loadFramePointer(slot.getLevelDelta());
+				variable = slot.getOffset() + "(%rbx)";
+			}
+			emit("mov", variable, "%rax"); // Kept at the end of the input
+			emit("call", RuntimeLibrary.READ);
+			emit("mov", "%rax", variable);
 		}
 		return null;
 	}
@@ -209,11 +394,15 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 	@Override
 	public Void visit(WriteStatement stmt) {
 		for (Expression expr : stmt.getExpressions()) {
-			expr.accept(this);
-			emit("pop %rsi"); // Value to print
-			emit("lea fmt_out(%rip), %rdi");
-			emit("mov $0, %rax");
-			emit("call printf@PLT");
+			if (registerExpressions) {
+				int value = evaluate(expr);
+				emit("mov", POOL[value], "%rax"); // Value to print
+				release(value);
+			} else {
+				expr.accept(this);
+				emit("pop", "%rax"); // Value to print
+			}
+			emit("call", RuntimeLibrary.WRITE);
 		}
 		return null;
 	}
@@ -226,41 +415,30 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 
 	@Override
 	public Void visit(OddCondition cond) {
-		cond.getExpression().accept(this);
-		emit("pop %rax");
-		emit("and $1, %rax");
-		emit("push %rax");
+		pushTruthValue(cond);
 		return null;
 	}
 
 	@Override
 	public Void visit(RelationalCondition cond) {
-		cond.getLeft().accept(this);
-		cond.getRight().accept(this);
-		emit("pop %rbx"); // Right
-		emit("pop %rax"); // Left
-		emit("cmp %rbx, %rax");
-		
+		pushTruthValue(cond);
+		return null;
+	}
+
+	/**
+	 * Pushes the 0/1 value of a condition used outside a control-flow context,
+	 * which the statements never do: they compile their conditions with
+	 * {@link #branch}.
+	 */
+	private void pushTruthValue(Condition cond) {
 		String trueLabel = newLabel();
 		String endLabel = newLabel();
-		String jumpInstr = "";
-		
-		switch (cond.getOperator()) {
-			case "=": jumpInstr = "je"; break;
-			case "#": jumpInstr = "jne"; break;
-			case "<": jumpInstr = "jl"; break;
-			case "<=": jumpInstr = "jle"; break;
-			case ">": jumpInstr = "jg"; break;
-			case ">=": jumpInstr = "jge"; break;
-		}
-		
-		emit(jumpInstr + " " + trueLabel);
-		emit("push $0");
-		emit("jmp " + endLabel);
+		branch(cond, true, trueLabel);
+		emit("push", "$0");
+		emit("jmp", endLabel);
 		emitLabel(trueLabel);
-		emit("push $1");
+		emit("push", "$1");
 		emitLabel(endLabel);
-		return null;
 	}
 
 	@Override
@@ -268,21 +446,21 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 		expr.getLeft().accept(this);
 		expr.getRight().accept(this);
 		
-		emit("pop %rbx"); // Right operand
-		emit("pop %rax"); // Left operand
+		emit("pop", "%rbx"); // Right operand
+		emit("pop", "%rax"); // Left operand
 		
 		String op = expr.getOperator();
 		if (op.equals("+")) {
-			emit("add %rbx, %rax");
+			emit("add", "%rbx", "%rax");
 		} else if (op.equals("-")) {
-			emit("sub %rbx, %rax");
+			emit("sub", "%rbx", "%rax");
 		} else if (op.equals("*")) {
-			emit("imul %rbx, %rax");
+			emit("imul", "%rbx", "%rax");
 		} else if (op.equals("/")) {
 			emit("cqo"); // Sign extend rax to rdx:rax
-			emit("idiv %rbx");
+			emit("idiv", "%rbx");
 		}
-		emit("push %rax");
+		emit("push", "%rax");
 		return null;
 	}
 
@@ -291,32 +469,280 @@ public class ASTCodeGenerator implements ASTVisitor<Void> {
 		expr.getOperand().accept(this);
 		
 		if (expr.getOperator().equals("-")) {
-			emit("pop %rax");
-			emit("neg %rax");
-			emit("push %rax");
+			emit("pop", "%rax");
+			emit("neg", "%rax");
+			emit("push", "%rax");
 		}
 		return null;
 	}
 
 	@Override
 	public Void visit(NumberLiteral expr) {
-		emit("mov $" + expr.getValue() + ", %rax");
-		emit("push %rax");
+		emit("mov", "$" + expr.getValue(), "%rax");
+		emit("push", "%rax");
 		return null;
 	}
 
 	@Override
 	public Void visit(VariableAccess expr) {
-		String name = expr.getName();
-		Symbol symbol = symbolTable.lookup(name);
-		if (symbol.getKind() == SymbolKind.CONST) {
-			emit("mov $" + symbol.getValue() + ", %rax");
-			emit("push %rax");
+		Slot slot = expr.getSlot();
+		if (slot.isConstant()) {
+			emit("mov", "$" + slot.getValue(), "%rax");
+			emit("push", "%rax");
 		} else {
-			loadFramePointer(symbol.getNestingLevel());
-			emit("mov " + symbol.getOffset() + "(%rbx), %rax");
-			emit("push %rax");
+			loadFramePointer(slot.getLevelDelta());
+			emit("mov", slot.getOffset() + "(%rbx)", "%rax");
+			emit("push", "%rax");
 		}
 		return null;
 	}
+
+	/**
+	 * Compiles a condition in a control-flow context: jumps to {@code label} if
+	 * the condition evaluates to {@code when}, falls through otherwise. A
+	 * relation becomes a single compare and conditional jump, without
+	 * materializing its 0/1 value.
+	 */
+	private void branch(Condition cond, boolean when, String label) {
+		if (cond instanceof OddCondition) {
+			Expression expr = ((OddCondition) cond).getExpression();
+			if (registerExpressions) {
+				int value = evaluate(expr);
+				emit("test", "$1", POOL[value]);
+				release(value);
+			} else {
+				expr.accept(this);
+				emit("pop", "%rax");
+				emit("test", "$1", "%rax");
+			}
+			emit(when ? "jnz" : "jz", label);
+			return;
+		}
+
+		RelationalCondition rel = (RelationalCondition) cond;
+		Expression left = rel.getLeft();
+		String op = rel.getOperator();
+		Expression right = rel.getRight();
+		if (registerExpressions) {
+			if (isDirect(COMPARE, left) && !isDirect(COMPARE, right)) {
+				// cmp takes the immediate or memory operand on the right only
+				Expression swap = left;
+				left = right;
+				right = swap;
+				op = mirror(op);
+			}
+			release(evaluateBinary(left, COMPARE, right));
+		} else {
+			left.accept(this);
+			right.accept(this);
+			emit("pop", "%rbx"); // Right
+			emit("pop", "%rax"); // Left
+			emit("cmp", "%rbx", "%rax");
+		}
+		emit(jumpInstruction(when ? op : negate(op)), label);
+	}
+
+	static String jumpInstruction(String relation) {
+		switch (relation) {
+			case "=": return "je";
+			case "#": return "jne";
+			case "<": return "jl";
+			case "<=": return "jle";
+			case ">": return "jg";
+			case ">=": return "jge";
+			default: throw new IllegalArgumentException("Unknown relation: " + relation);
+		}
+	}
+
+	/** The relation holding exactly when the given one does not. */
+	static String negate(String relation) {
+		switch (relation) {
+			case "=": return "#";
+			case "#": return "=";
+			case "<": return ">=";
+			case "<=": return ">";
+			case ">": return "<=";
+			case ">=": return "<";
+			default: throw new IllegalArgumentException("Unknown relation: " + relation);
+		}
+	}
+
+	/** The relation holding for swapped operands: a op b iff b mirror(op) a. */
+	static String mirror(String relation) {
+		switch (relation) {
+			case "<": return ">";
+			case "<=": return ">=";
+			case ">": return "<";
+			case ">=": return "<=";
+			default: return relation;
+		}
+	}
+
+	// --- Register mode ---
+
+	private int allocate() {
+		for (int i = 0; i < POOL.length; i++) {
+			if (!busy[i]) {
+				busy[i] = true;
+				return i;
+			}
+		}
+		throw new IllegalStateException("Expression register pool exhausted");
+	}
+
+	private void release(int register) {
+		busy[register] = false;
+	}
+
+	private int freeRegisters() {
+		int free = 0;
+		for (boolean b : busy) {
+			if (!b) {
+				free++;
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * @return true if the right operand of the operator can be used directly as
+	 *         an instruction operand (immediate or memory) instead of a register
+	 */
+	private static boolean isDirect(String op, Expression right) {
+		if (right instanceof NumberLiteral) {
+			// idiv has no immediate form, but most constant divisors need no idiv
+			return !op.equals("/") || ConstantArithmetic.canDivide(((NumberLiteral) right).getValue());
+		}
+		return right instanceof VariableAccess && !((VariableAccess) right).getSlot().isConstant();
+	}
+
+	/**
+	 * Sethi-Ullman number: registers needed to evaluate the expression without spilling.
+	 */
+	private static int need(Expression expr) {
+		if (expr instanceof BinaryExpression) {
+			BinaryExpression bin = (BinaryExpression) expr;
+			return need(bin.getLeft(), bin.getOperator(), bin.getRight());
+		} else if (expr instanceof UnaryExpression) {
+			return need(((UnaryExpression) expr).getOperand());
+		}
+		return 1;
+	}
+
+	private static int need(Expression left, String op, Expression right) {
+		int l = need(left);
+		if (isDirect(op, right)) {
+			return l;
+		}
+		int r = need(right);
+		return l == r ? l + 1 : Math.max(l, r);
+	}
+
+	/**
+	 * Operand text of a literal or variable used directly; may load %rbx.
+	 */
+	private String directOperand(Expression expr) {
+		if (expr instanceof NumberLiteral) {
+			return "$" + ((NumberLiteral) expr).getValue();
+		}
+		Slot slot = ((VariableAccess) expr).getSlot();
+		if (slot.isConstant()) {
+			return "$" + slot.getValue();
+		}
+		return slot.getOffset() + "(" + frameBase(slot.getLevelDelta()) + ")";
+	}
+
+	/**
+	 * Evaluates an expression into a register of the pool, which the caller must release.
+	 */
+	private int evaluate(Expression expr) {
+		if (expr instanceof BinaryExpression) {
+			BinaryExpression bin = (BinaryExpression) expr;
+			return evaluateBinary(bin.getLeft(), bin.getOperator(), bin.getRight());
+		} else if (expr instanceof UnaryExpression) {
+			UnaryExpression unary = (UnaryExpression) expr;
+			int value = evaluate(unary.getOperand());
+			if (unary.getOperator().equals("-")) {
+				emit("neg", POOL[value]);
+			}
+			return value;
+		}
+		int value = allocate();
+		emit("mov", directOperand(expr), POOL[value]);
+		return value;
+	}
+
+	/**
+	 * Evaluates an arithmetic operator into a register of the pool; for {@link #COMPARE}
+	 * only the flags are meaningful.
+	 */
+	private int evaluateBinary(Expression left, String op, Expression right) {
+		if (op.equals("*") && left instanceof NumberLiteral && !isDirect(op, right)) {
+			// Constant factor on the right, where it becomes an immediate or a shift
+			Expression swap = left;
+			left = right;
+			right = swap;
+		}
+		if (isDirect(op, right)) {
+			int value = evaluate(left);
+			apply(op, value, directOperand(right));
+			return value;
+		}
+
+		// The operand needing more registers first, so the other one fits in what is left
+		boolean rightFirst = need(right) > need(left);
+		Expression first = rightFirst ? right : left;
+		Expression second = rightFirst ? left : right;
+
+		int firstValue = evaluate(first);
+		boolean spilled = false;
+		if (freeRegisters() < need(second)) {
+			emit("push", POOL[firstValue]);
+			release(firstValue);
+			spilled = true;
+		}
+		int secondValue = evaluate(second);
+		if (spilled) {
+			firstValue = allocate();
+			emit("pop", POOL[firstValue]);
+		}
+
+		int leftValue = rightFirst ? secondValue : firstValue;
+		int rightValue = rightFirst ? firstValue : secondValue;
+		apply(op, leftValue, POOL[rightValue]);
+		release(rightValue);
+		return leftValue;
+	}
+
+	/**
+	 * Emits {@code target = target op operand}, or a compare of target with operand.
+	 */
+	private void apply(String op, int target, String operand) {
+		String reg = POOL[target];
+		switch (op) {
+			case "+": emit("add", operand, reg); break;
+			case "-": emit("sub", operand, reg); break;
+			case "*":
+				if (operand.startsWith("$")) {
+					if (!ConstantArithmetic.multiply(code, reg, Long.parseLong(operand.substring(1)))) {
+						emit("imul", operand, reg, reg);
+					}
+				} else {
+					emit("imul", operand, reg);
+				}
+				break;
+			case "/":
+				if (operand.startsWith("$")) {
+					ConstantArithmetic.divide(code, reg, Long.parseLong(operand.substring(1)));
+					break;
+				}
+				emit("mov", reg, "%rax");
+				emit("cqo"); // Sign extend rax to rdx:rax
+				emit(operand.startsWith("%") ? "idiv" : "idivq", operand);
+				emit("mov", "%rax", reg);
+				break;
+			case COMPARE: emit("cmp", operand, reg); break;
+			default: throw new IllegalArgumentException("Unknown operator: " + op);
+		}
+	}
 }
@@ -0,0 +1,158 @@
+package it.unisannio.studenti.codegen;
+
+import java.util.List;
+
+/**
+ * Instruction sequences for multiplications and divisions by a constant,
+ * shared by the code generators, cheaper than {@code imul} and much cheaper
+ * than {@code idiv}.
+ * <ul>
+ * <li>A multiplication by a power of two is a shift, by 3, 5 or 9 (times a
+ *     power of two) a {@code lea} (and a shift); a negative factor adds a
+ *     {@code neg}. Like {@code imul} these wrap around at 64 bits.</li>
+ * <li>A division by a power of two shifts right after adding {@code 2^k - 1}
+ *     to negative dividends, so that the quotient is truncated toward zero
+ *     like {@code idiv} does.</li>
+ * <li>Any other division multiplies by a "magic number", an approximation of
+ *     {@code 2^(64+s) / d}, keeps the high half of the product and corrects
+ *     it (Granlund and Montgomery; Warren, Hacker's Delight, chapter 10).</li>
+ * </ul>
+ * A negative divisor divides by its absolute value and negates the quotient,
+ * which truncation toward zero allows. Division by 0 and -1 is left to
+ * {@code idiv}, so that it traps as in the unoptimized code.
+ */
+final class ConstantArithmetic {
+	private ConstantArithmetic() {
+	}
+
+	/**
+	 * Emits {@code register = register * factor}.
+	 *
+	 * @return false, emitting nothing, if {@code imul} is as good
+	 */
+	static boolean multiply(List<Instruction> code, String register, long factor) {
+		if (factor == 0) {
+			code.add(Instruction.of("mov", "$0", register));
+			return true;
+		}
+		if (factor == 1) {
+			return true;
+		}
+		if (factor == -1) {
+			code.add(Instruction.of("neg", register));
+			return true;
+		}
+		if (factor == Long.MIN_VALUE) {
+			code.add(Instruction.of("shl", "$63", register));
+			return true;
+		}
+		long magnitude = Math.abs(factor);
+		int shift = Long.numberOfTrailingZeros(magnitude);
+		long odd = magnitude >> shift;
+		if (odd != 1 && odd != 3 && odd != 5 && odd != 9) {
+			return false;
+		}
+		if (odd != 1) {
+			code.add(Instruction.of("lea", "(" + register + "," + register + "," + (odd - 1) + ")", register));
+		}
+		if (shift > 0) {
+			code.add(Instruction.of("shl", "$" + shift, register));
+		}
+		if (factor < 0) {
+			code.add(Instruction.of("neg", register));
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if {@link #divide} handles the divisor
+	 */
+	static boolean canDivide(long divisor) {
+		return divisor != 0 && divisor != -1 && divisor != Long.MIN_VALUE;
+	}
+
+	/**
+	 * Emits {@code register = register / divisor}, truncated toward zero; uses
+	 * %rax and %rdx as scratch, so {@code register} must be another register.
+	 */
+	static void divide(List<Instruction> code, String register, long divisor) {
+		if (!canDivide(divisor)) {
+			throw new IllegalArgumentException("Division left to idiv: " + divisor);
+		}
+		long magnitude = Math.abs(divisor);
+		if (magnitude != 1) {
+			if (Long.bitCount(magnitude) == 1) {
+				dividePowerOfTwo(code, register, Long.numberOfTrailingZeros(magnitude));
+			} else {
+				divideMagic(code, register, magnitude);
+			}
+		}
+		if (divisor < 0) {
+			code.add(Instruction.of("neg", register));
+		}
+	}
+
+	private static void dividePowerOfTwo(List<Instruction> code, String register, int shift) {
+		// Bias: 2^shift - 1 for a negative dividend, 0 otherwise
+		code.add(Instruction.of("mov", register, "%rax"));
+		if (shift > 1) {
+			code.add(Instruction.of("sar", "$63", "%rax"));
+		}
+		code.add(Instruction.of("shr", "$" + (64 - shift), "%rax"));
+		code.add(Instruction.of("add", "%rax", register));
+		code.add(Instruction.of("sar", "$" + shift, register));
+	}
+
+	private static void divideMagic(List<Instruction> code, String register, long divisor) {
+		long[] magic = magic(divisor);
+		long multiplier = magic[0];
+		int shift = (int) magic[1];
+		code.add(Instruction.of(multiplier == (int) multiplier ? "mov" : "movabs", "$" + multiplier, "%rax"));
+		code.add(Instruction.of("imul", register)); // %rdx = high half of the signed product
+		if (multiplier < 0) {
+			code.add(Instruction.of("add", register, "%rdx"));
+		}
+		if (shift > 0) {
+			code.add(Instruction.of("sar", "$" + shift, "%rdx"));
+		}
+		// Add 1 for a negative dividend
+		code.add(Instruction.of("mov", register, "%rax"));
+		code.add(Instruction.of("shr", "$63", "%rax"));
+		code.add(Instruction.of("add", "%rax", "%rdx"));
+		code.add(Instruction.of("mov", "%rdx", register));
+	}
+
+	/**
+	 * The magic number and shift for the signed division by {@code divisor},
+	 * at least 2 and not a power of two (Hacker's Delight, figure 10-1).
+	 *
+	 * @return {multiplier, shift}
+	 */
+	static long[] magic(long divisor) {
+		final long twoTo63 = Long.MIN_VALUE;
+		long nc = twoTo63 - 1 - Long.remainderUnsigned(twoTo63, divisor); // Largest dividend with nc % divisor = divisor - 1
+		int p = 63;
+		long q1 = Long.divideUnsigned(twoTo63, nc);
+		long r1 = twoTo63 - q1 * nc;
+		long q2 = Long.divideUnsigned(twoTo63, divisor);
+		long r2 = twoTo63 - q2 * divisor;
+		long delta;
+		do {
+			p++;
+			q1 *= 2;
+			r1 *= 2;
+			if (Long.compareUnsigned(r1, nc) >= 0) {
+				q1++;
+				r1 -= nc;
+			}
+			q2 *= 2;
+			r2 *= 2;
+			if (Long.compareUnsigned(r2, divisor) >= 0) {
+				q2++;
+				r2 -= divisor;
+			}
+			delta = divisor - r2;
+		} while (Long.compareUnsigned(q1, delta) < 0 || q1 == delta && r1 == 0);
+		return new long[] {q2 + 1, p - 64};
+	}
+}
@@ -0,0 +1,143 @@
+package it.unisannio.studenti.codegen;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One line of the generated assembly: a machine instruction (opcode and
+ * AT&T operands, destination last), a label or an assembler directive.
+ * <p>
+ * The code generator builds a list of these instead of text, so that later
+ * passes such as the {@link PeepholeOptimizer} can inspect and rewrite the
+ * code; the text is produced only when the list is printed.
+ */
+public final class Instruction {
+	public enum Kind { INSTRUCTION, LABEL, DIRECTIVE }
+
+	private static final String[] NO_OPERANDS = {};
+
+	private final Kind kind;
+	private final String opcode; // the label name for labels, the whole line for directives
+	private final String[] operands;
+
+	private Instruction(Kind kind, String opcode, String[] operands) {
+		this.kind = kind;
+		this.opcode = opcode;
+		this.operands = operands;
+	}
+
+	public static Instruction of(String opcode, String... operands) {
+		return new Instruction(Kind.INSTRUCTION, opcode, operands.length == 0 ? NO_OPERANDS : operands);
+	}
+
+	public static Instruction label(String name) {
+		return new Instruction(Kind.LABEL, name, NO_OPERANDS);
+	}
+
+	public static Instruction directive(String text) {
+		return new Instruction(Kind.DIRECTIVE, text, NO_OPERANDS);
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public boolean isInstruction() {
+		return kind == Kind.INSTRUCTION;
+	}
+
+	public boolean isLabel() {
+		return kind == Kind.LABEL;
+	}
+
+	/**
+	 * @return true if this is an instruction with the given opcode
+	 */
+	public boolean is(String opcode) {
+		return kind == Kind.INSTRUCTION && this.opcode.equals(opcode);
+	}
+
+	public String getOpcode() {
+		return opcode;
+	}
+
+	/** The name of a label. */
+	public String getLabel() {
+		return opcode;
+	}
+
+	public int getOperandCount() {
+		return operands.length;
+	}
+
+	public String getOperand(int index) {
+		return operands[index];
+	}
+
+	/** The last operand, which AT&T syntax uses as destination; null without operands. */
+	public String getDestination() {
+		return operands.length == 0 ? null : operands[operands.length - 1];
+	}
+
+	public void appendTo(StringBuilder sb) {
+		switch (kind) {
+			case LABEL:
+				sb.append(opcode).append(":\n");
+				break;
+			case DIRECTIVE:
+				sb.append(opcode).append('\n');
+				break;
+			default:
+				sb.append('\t').append(opcode);
+				for (int i = 0; i < operands.length; i++) {
+					sb.append(i == 0 ? " " : ", ").append(operands[i]);
+				}
+				sb.append('\n');
+		}
+	}
+
+	/**
+	 * Prints a list of instructions as assembly source.
+	 */
+	public static String toAssembly(List<Instruction> code) {
+		StringBuilder sb = new StringBuilder(code.size() * 20);
+		for (Instruction instruction : code) {
+			instruction.appendTo(sb);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the number of machine instructions in the list, labels and directives excluded
+	 */
+	public static int countInstructions(List<Instruction> code) {
+		int count = 0;
+		for (Instruction instruction : code) {
+			if (instruction.isInstruction()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Instruction)) {
+			return false;
+		}
+		Instruction other = (Instruction) o;
+		return kind == other.kind && opcode.equals(other.opcode) && Arrays.equals(operands, other.operands);
+	}
+
+	@Override
+	public int hashCode() {
+		return opcode.hashCode() * 31 + Arrays.hashCode(operands);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		appendTo(sb);
+		return sb.substring(0, sb.length() - 1);
+	}
+}
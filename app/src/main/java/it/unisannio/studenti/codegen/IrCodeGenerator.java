@@ -0,0 +1,382 @@
+package it.unisannio.studenti.codegen;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.IrProgram;
+import it.unisannio.studenti.ir.Operand;
+import it.unisannio.studenti.optimizer.ConstantFolder;
+
+/**
+ * Instruction selection from the three-address IR to x86-64 assembly.
+ * <p>
+ * Virtual registers get a register or a stack slot from a
+ * {@link LinearScanAllocator}; every IR instruction is then expanded into a
+ * short x86 sequence, using %rax, %rdx and %r10 as scratch registers when an
+ * operand is in memory or when x86 needs a fixed register (idiv, static link).
+ * Blocks are emitted in layout order, so jumps to the next block are omitted.
+ * <p>
+ * Procedures use the same frame layout and calling convention as the code of
+ * {@link ASTCodeGenerator}: static link in %r10 and at -8(%rbp), variables
+ * from -16(%rbp) down, then the spill slots and the saved callee-saved
+ * registers, restored before returning. READ and WRITE call the
+ * {@link RuntimeLibrary}, which preserves the allocatable registers.
+ */
+public class IrCodeGenerator {
+	/** Allocatable registers: %rax and %rdx are scratch and used by idiv, %r10 is scratch and the static link. */
+	private static final String[] REGISTERS = {"%rcx", "%rsi", "%rdi", "%r8", "%r9", "%r11"};
+	/** Allocatable registers preserved by calls, for the values living across them. */
+	private static final String[] CALLEE_SAVED = {"%rbx", "%r12", "%r13", "%r14", "%r15"};
+
+	private final List<Instruction> code = new ArrayList<>();
+	private int labelCounter = 0;
+	private int spillCount = 0;
+
+	// State of the function being generated
+	private IrFunction function;
+	private LinearScanAllocator allocation;
+	private Map<BasicBlock, String> labels;
+	private List<String> savedRegisters;
+	private int saveAreaOffset;
+
+	public List<Instruction> getInstructions() {
+		return code;
+	}
+
+	public String getAssembly() {
+		return Instruction.toAssembly(code);
+	}
+
+	public int getInstructionCount() {
+		return Instruction.countInstructions(code);
+	}
+
+	/** The number of virtual registers kept in stack slots, over all functions. */
+	public int getSpillCount() {
+		return spillCount;
+	}
+
+	public void generate(IrProgram program) {
+		code.add(Instruction.directive(".section .text"));
+		code.add(Instruction.directive(".global main"));
+		for (IrFunction f : program.getFunctions()) {
+			generate(f);
+		}
+	}
+
+	private void generate(IrFunction function) {
+		this.function = function;
+		int firstSlotOffset = -16 - function.getLocalsSize();
+		allocation = new LinearScanAllocator(function, REGISTERS, CALLEE_SAVED, firstSlotOffset);
+		spillCount += allocation.getSpillCount();
+		savedRegisters = allocation.getUsedCalleeSaved();
+		saveAreaOffset = firstSlotOffset - 8 * allocation.getSlotCount();
+
+		labels = new IdentityHashMap<>();
+		for (BasicBlock block : function.getBlocks()) {
+			labels.put(block, "L" + (labelCounter++));
+		}
+
+		// Prologue, as in ASTCodeGenerator: the frame keeps %rsp 16-byte aligned at calls
+		emitLabel(function.getLabel());
+		emit("push", "%rbp");
+		emit("mov", "%rsp", "%rbp");
+		emit("push", function.isMain() ? "$0" : "%r10"); // Static link
+		int frameSize = function.getLocalsSize() + 8 * (allocation.getSlotCount() + savedRegisters.size());
+		frameSize += (16 - (frameSize + 8) % 16) % 16;
+		emit("sub", "$" + frameSize, "%rsp");
+		for (int i = 0; i < savedRegisters.size(); i++) {
+			emit("mov", savedRegisters.get(i), (saveAreaOffset - 8 * i) + "(%rbp)");
+		}
+
+		List<BasicBlock> blocks = function.getBlocks();
+		for (int b = 0; b < blocks.size(); b++) {
+			BasicBlock block = blocks.get(b);
+			BasicBlock next = b + 1 < blocks.size() ? blocks.get(b + 1) : null;
+			if (b > 0 || !block.getPredecessors().isEmpty()) {
+				emitLabel(labels.get(block));
+			}
+			for (IrInstruction instruction : block.getInstructions()) {
+				select(instruction, next);
+			}
+		}
+	}
+
+	private void emit(String opcode, String... operands) {
+		code.add(Instruction.of(opcode, operands));
+	}
+
+	private void emitLabel(String label) {
+		code.add(Instruction.label(label));
+	}
+
+	// --- Operands ---
+
+	private static boolean isMemory(String location) {
+		return location.endsWith(")");
+	}
+
+	private static boolean fitsImmediate(long value) {
+		return value == (int) value;
+	}
+
+	private String locationOf(Operand operand) {
+		return allocation.getLocation(operand.getRegister());
+	}
+
+	/**
+	 * @return the operand as an x86 source operand (register, memory or
+	 *         immediate); a constant too large for an immediate is loaded in {@code scratch}
+	 */
+	private String source(Operand operand, String scratch) {
+		if (operand.isRegister()) {
+			return locationOf(operand);
+		}
+		if (fitsImmediate(operand.getValue())) {
+			return "$" + operand.getValue();
+		}
+		emit("movabs", "$" + operand.getValue(), scratch);
+		return scratch;
+	}
+
+	/**
+	 * @return a register holding the operand: its own, or {@code scratch} loaded with it
+	 */
+	private String inRegister(Operand operand, String scratch) {
+		String source = source(operand, scratch);
+		if (source.startsWith("%")) {
+			return source;
+		}
+		emit("mov", source, scratch);
+		return scratch;
+	}
+
+	/**
+	 * Moves between any two operands, through %rax for memory to memory.
+	 */
+	private void move(String from, String to) {
+		if (from.equals(to)) {
+			return;
+		}
+		if (isMemory(from) && isMemory(to)) {
+			emit("mov", from, "%rax");
+			from = "%rax";
+		}
+		emit(from.startsWith("$") && isMemory(to) ? "movq" : "mov", from, to);
+	}
+
+	// --- Instructions ---
+
+	private void select(IrInstruction instruction, BasicBlock next) {
+		switch (instruction.getOpcode()) {
+			case COPY:
+				move(source(instruction.getOperand(0), "%rax"), result(instruction));
+				break;
+			case ADD:
+				arithmetic("add", true, instruction);
+				break;
+			case SUB:
+				arithmetic("sub", false, instruction);
+				break;
+			case MUL:
+				arithmetic("imul", true, instruction);
+				break;
+			case DIV:
+				divide(instruction);
+				break;
+			case NEG: {
+				String target = result(instruction);
+				String register = target.startsWith("%") ? target : "%rax";
+				move(source(instruction.getOperand(0), "%rax"), register);
+				emit("neg", register);
+				move(register, target);
+				break;
+			}
+			case FRAME: {
+				String target = result(instruction);
+				String register = target.startsWith("%") ? target : "%rax";
+				emit("mov", "-8(%rbp)", register);
+				for (int i = 1; i < instruction.getLevels(); i++) {
+					emit("mov", "-8(" + register + ")", register);
+				}
+				move(register, target);
+				break;
+			}
+			case LOAD:
+				move(variable(instruction, 0), result(instruction));
+				break;
+			case STORE: {
+				String address = variable(instruction, 1);
+				String value = source(instruction.getOperand(0), "%rax");
+				if (isMemory(value)) {
+					emit("mov", value, "%rax");
+					value = "%rax";
+				}
+				emit(value.startsWith("$") ? "movq" : "mov", value, address);
+				break;
+			}
+			case READ:
+				move(source(instruction.getOperand(0), "%rax"), "%rax"); // Kept at the end of the input
+				emit("call", RuntimeLibrary.READ);
+				move("%rax", result(instruction));
+				break;
+			case WRITE:
+				move(source(instruction.getOperand(0), "%rax"), "%rax");
+				emit("call", RuntimeLibrary.WRITE);
+				break;
+			case CALL:
+				move(instruction.getOperandCount() == 0 ? "%rbp" : locationOf(instruction.getOperand(0)), "%r10"); // Static link
+				emit("call", instruction.getProcedure());
+				break;
+			case JUMP:
+				jump(instruction.getTarget(0), next);
+				break;
+			case BRANCH:
+				branch(instruction, next);
+				break;
+			case RETURN:
+				if (function.isMain()) {
+					emit("call", RuntimeLibrary.FLUSH);
+					emit("mov", "$0", "%rax");
+				}
+				for (int i = 0; i < savedRegisters.size(); i++) {
+					emit("mov", (saveAreaOffset - 8 * i) + "(%rbp)", savedRegisters.get(i));
+				}
+				emit("leave");
+				emit("ret");
+				break;
+			default:
+				throw new IllegalStateException("Cannot select " + instruction);
+		}
+	}
+
+	private String result(IrInstruction instruction) {
+		return allocation.getLocation(instruction.getResult());
+	}
+
+	/**
+	 * @return the memory operand of the variable of a LOAD or STORE; the frame
+	 *         pointer operand, if any, is at {@code frameOperand}
+	 */
+	private String variable(IrInstruction instruction, int frameOperand) {
+		int offset = instruction.getVariable().getOffset();
+		if (instruction.getOperandCount() <= frameOperand) {
+			return offset + "(%rbp)";
+		}
+		return offset + "(" + inRegister(instruction.getOperand(frameOperand), "%r10") + ")";
+	}
+
+	/**
+	 * {@code result = left op right} for add, sub and imul, computed in the
+	 * result register when possible, otherwise in %rax.
+	 */
+	private void arithmetic(String op, boolean commutative, IrInstruction instruction) {
+		Operand left = instruction.getOperand(0);
+		Operand right = instruction.getOperand(1);
+		String target = result(instruction);
+		if (commutative && (right.isRegister() && locationOf(right).equals(target) || left.isConstant() && right.isRegister())) {
+			Operand swap = left;
+			left = right;
+			right = swap;
+		}
+		boolean clobbersRight = right.isRegister() && locationOf(right).equals(target);
+		String register = target.startsWith("%") && !clobbersRight ? target : "%rax";
+
+		move(source(left, "%rax"), register);
+		if (op.equals("imul") && right.isConstant() && ConstantArithmetic.multiply(code, register, right.getValue())) {
+			move(register, target);
+			return;
+		}
+		String operand = source(right, "%rdx");
+		if (op.equals("imul") && operand.startsWith("$")) {
+			emit("imul", operand, register, register);
+		} else {
+			emit(op, operand, register);
+		}
+		move(register, target);
+	}
+
+	private void divide(IrInstruction instruction) {
+		Operand right = instruction.getOperand(1);
+		if (right.isConstant() && ConstantArithmetic.canDivide(right.getValue())) {
+			String target = result(instruction);
+			String register = target.startsWith("%") ? target : "%r10";
+			move(source(instruction.getOperand(0), register), register);
+			ConstantArithmetic.divide(code, register, right.getValue());
+			move(register, target);
+			return;
+		}
+		move(source(instruction.getOperand(0), "%rax"), "%rax");
+		String divisor = source(instruction.getOperand(1), "%r10");
+		if (divisor.startsWith("$")) {
+			emit("mov", divisor, "%r10"); // idiv has no immediate form
+			divisor = "%r10";
+		}
+		emit("cqo"); // Sign extend rax to rdx:rax
+		emit(isMemory(divisor) ? "idivq" : "idiv", divisor);
+		move("%rax", result(instruction));
+	}
+
+	private void jump(BasicBlock target, BasicBlock next) {
+		if (target != next) {
+			emit("jmp", labels.get(target));
+		}
+	}
+
+	/**
+	 * A compare (or a bit test for ODD) and the conditional jumps, falling
+	 * through to the next block when it is one of the targets.
+	 */
+	private void branch(IrInstruction instruction, BasicBlock next) {
+		String relation = instruction.getRelation();
+		BasicBlock ifTrue = instruction.getTarget(0);
+		BasicBlock ifFalse = instruction.getTarget(1);
+		Operand left = instruction.getOperand(0);
+
+		if (relation.equals("odd")) {
+			if (left.isConstant()) {
+				jump((left.getValue() & 1) != 0 ? ifTrue : ifFalse, next);
+				return;
+			}
+			String value = locationOf(left);
+			emit(isMemory(value) ? "testq" : "test", "$1", value);
+			conditionalJumps("jnz", "jz", ifTrue, ifFalse, next);
+			return;
+		}
+
+		Operand right = instruction.getOperand(1);
+		if (left.isConstant() && right.isConstant()) {
+			jump(ConstantFolder.compare(relation, left.getValue(), right.getValue()) ? ifTrue : ifFalse, next);
+			return;
+		}
+		if (left.isConstant()) { // cmp takes the immediate on the source side only
+			Operand swap = left;
+			left = right;
+			right = swap;
+			relation = ASTCodeGenerator.mirror(relation);
+		}
+		String a = source(left, "%rax");
+		String b = source(right, "%rdx");
+		if (isMemory(a) && isMemory(b)) {
+			emit("mov", a, "%rax");
+			a = "%rax";
+		}
+		emit(b.startsWith("$") && isMemory(a) ? "cmpq" : "cmp", b, a);
+		conditionalJumps(ASTCodeGenerator.jumpInstruction(relation),
+				ASTCodeGenerator.jumpInstruction(ASTCodeGenerator.negate(relation)), ifTrue, ifFalse, next);
+	}
+
+	private void conditionalJumps(String whenTrue, String whenFalse, BasicBlock ifTrue, BasicBlock ifFalse, BasicBlock next) {
+		if (ifTrue == next) {
+			emit(whenFalse, labels.get(ifFalse));
+		} else {
+			emit(whenTrue, labels.get(ifTrue));
+			jump(ifFalse, next);
+		}
+	}
+}
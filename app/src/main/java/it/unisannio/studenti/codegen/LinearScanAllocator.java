@@ -0,0 +1,284 @@
+package it.unisannio.studenti.codegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.Dominators;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Liveness;
+import it.unisannio.studenti.ir.LoopNest;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+
+/**
+ * Assigns a machine register or a stack slot to every virtual register of
+ * a function (without PHIs) with the linear scan algorithm of Poletto and
+ * Sarkar.
+ * <p>
+ * The instructions are numbered in layout order and every virtual register
+ * gets one live interval, from its first definition to its last use as
+ * computed by {@link Liveness}. Intervals are visited by increasing start;
+ * when no register is free, the interval with the lowest weight (its
+ * definitions and uses, each counting 8 times more per enclosing loop) is
+ * spilled to a stack slot for its whole lifetime. Spill slots are reused
+ * once their interval has ended.
+ * <p>
+ * An interval living across a CALL can only get a callee-saved register,
+ * which the called function preserves; the others prefer the caller-saved
+ * registers, which cost nothing to use, and fall back on the callee-saved
+ * ones. The function must save and restore the
+ * callee-saved registers it was given, see {@link #getUsedCalleeSaved()}.
+ */
+public class LinearScanAllocator {
+	private static final int LOOP_WEIGHT = 8;
+	private static final int MAX_LOOP_DEPTH = 6; // Keeps the weights in a long
+
+	private final String[] registers; // Caller-saved first, then callee-saved
+	private final int callerSavedCount;
+	private final boolean[] calleeSavedUsed;
+	private final int firstSlotOffset;
+	private final String[] locations;
+	private final int[] start;
+	private final int[] end;
+	private final long[] weight;
+	private int[] callPositions = new int[16];
+	private int callCount = 0;
+	private int[] slotBusyUntil = new int[16]; // Last position of the intervals in each slot
+	private int slotCount = 0;
+	private int spillCount = 0;
+
+	/**
+	 * @param callerSaved the allocatable registers a call may overwrite
+	 * @param calleeSaved the allocatable registers a call preserves
+	 * @param firstSlotOffset the %rbp offset of the first spill slot; further slots go downward
+	 */
+	public LinearScanAllocator(IrFunction function, String[] callerSaved, String[] calleeSaved, int firstSlotOffset) {
+		this.registers = new String[callerSaved.length + calleeSaved.length];
+		System.arraycopy(callerSaved, 0, registers, 0, callerSaved.length);
+		System.arraycopy(calleeSaved, 0, registers, callerSaved.length, calleeSaved.length);
+		this.callerSavedCount = callerSaved.length;
+		this.calleeSavedUsed = new boolean[calleeSaved.length];
+		this.firstSlotOffset = firstSlotOffset;
+		int count = function.getRegisterCount();
+		this.locations = new String[count];
+		this.start = new int[count];
+		this.end = new int[count];
+		this.weight = new long[count];
+		Arrays.fill(start, Integer.MAX_VALUE);
+		Arrays.fill(end, -1);
+		buildIntervals(function);
+		scan();
+	}
+
+	/**
+	 * @return the register ("%rcx") or stack slot ("-40(%rbp)") of a virtual
+	 *         register, null if it is never defined nor used
+	 */
+	public String getLocation(int register) {
+		return locations[register];
+	}
+
+	/**
+	 * @return the callee-saved registers given to some interval, which the
+	 *         function must preserve for its caller
+	 */
+	public List<String> getUsedCalleeSaved() {
+		List<String> used = new ArrayList<>();
+		for (int i = 0; i < calleeSavedUsed.length; i++) {
+			if (calleeSavedUsed[i]) {
+				used.add(registers[callerSavedCount + i]);
+			}
+		}
+		return used;
+	}
+
+	/** The number of stack slots used for spilled intervals. */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/** The number of intervals that did not get a register. */
+	public int getSpillCount() {
+		return spillCount;
+	}
+
+	/**
+	 * Numbers the instructions (two positions each: operands are read at the
+	 * even one, the result is written at the odd one) and computes the
+	 * interval and the weight of every register.
+	 */
+	private void buildIntervals(IrFunction function) {
+		Liveness liveness = new Liveness(function);
+		LoopNest loops = new LoopNest(new Dominators(function));
+		List<BasicBlock> blocks = function.getBlocks();
+		int[] blockStart = new int[blocks.size()];
+		int position = 0;
+		for (int b = 0; b < blocks.size(); b++) {
+			blockStart[b] = position;
+			for (IrInstruction instruction : blocks.get(b).getInstructions()) {
+				if (isCall(instruction)) {
+					addCall(position);
+				}
+				position += 2;
+			}
+		}
+
+		for (int b = blocks.size() - 1; b >= 0; b--) {
+			BasicBlock block = blocks.get(b);
+			List<IrInstruction> instructions = block.getInstructions();
+			int blockEnd = blockStart[b] + 2 * instructions.size();
+			long occurrence = 1;
+			for (int depth = Math.min(loops.getDepth(block), MAX_LOOP_DEPTH); depth > 0; depth--) {
+				occurrence *= LOOP_WEIGHT;
+			}
+			BitSet live = (BitSet) liveness.getLiveOut(block).clone();
+			for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+				extend(v, blockEnd);
+			}
+			for (int i = instructions.size() - 1; i >= 0; i--) {
+				IrInstruction instruction = instructions.get(i);
+				int at = blockStart[b] + 2 * i;
+				if (instruction.getOpcode() == Opcode.PHI) {
+					throw new IllegalStateException("PHI instructions must be removed before register allocation");
+				}
+				if (instruction.hasResult()) {
+					int result = instruction.getResult();
+					start[result] = Math.min(start[result], at + 1);
+					extend(result, at + 1);
+					weight[result] += occurrence;
+					live.clear(result);
+				}
+				for (int o = 0; o < instruction.getOperandCount(); o++) {
+					Operand operand = instruction.getOperand(o);
+					if (operand.isRegister()) {
+						extend(operand.getRegister(), at);
+						weight[operand.getRegister()] += occurrence;
+						live.set(operand.getRegister());
+					}
+				}
+			}
+			for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+				start[v] = Math.min(start[v], blockStart[b]);
+			}
+		}
+	}
+
+	private void extend(int register, int position) {
+		end[register] = Math.max(end[register], position);
+	}
+
+	private void addCall(int position) {
+		if (callCount == callPositions.length) {
+			callPositions = Arrays.copyOf(callPositions, callCount * 2);
+		}
+		callPositions[callCount++] = position;
+	}
+
+	/**
+	 * @return true if the instruction calls a procedure, which clobbers every caller-saved register
+	 *         (READ and WRITE call the {@link RuntimeLibrary}, which preserves them)
+	 */
+	static boolean isCall(IrInstruction instruction) {
+		return instruction.getOpcode() == Opcode.CALL;
+	}
+
+	/**
+	 * @return true if a call happens while the register is live (after its definition, before its last use)
+	 */
+	private boolean crossesCall(int register) {
+		int index = Arrays.binarySearch(callPositions, 0, callCount, start[register]);
+		int next = index >= 0 ? index : -index - 1; // First call from the start, which may open a block the register is live into
+		return next < callCount && callPositions[next] < end[register];
+	}
+
+	private void scan() {
+		List<Integer> intervals = new ArrayList<>();
+		for (int v = 0; v < locations.length; v++) {
+			if (end[v] >= 0) {
+				if (start[v] == Integer.MAX_VALUE) {
+					start[v] = end[v]; // Used but never defined: only possible in unreachable code
+				}
+				intervals.add(v);
+			}
+		}
+		intervals.sort(Comparator.comparingInt((Integer v) -> start[v]).thenComparingInt(v -> v));
+
+		List<Integer> active = new ArrayList<>(); // Intervals in registers
+		int[] registerOf = new int[locations.length];
+		boolean[] busy = new boolean[registers.length];
+
+		for (int v : intervals) {
+			for (int i = active.size() - 1; i >= 0; i--) {
+				int a = active.get(i);
+				if (end[a] < start[v]) {
+					busy[registerOf[a]] = false;
+					active.remove(i);
+				}
+			}
+
+			// Across a call only a callee-saved register keeps the value
+			int first = crossesCall(v) ? callerSavedCount : 0;
+			int free = -1;
+			for (int r = first; r < registers.length; r++) {
+				if (!busy[r]) {
+					free = r;
+					break;
+				}
+			}
+			if (free >= 0) {
+				busy[free] = true;
+				assign(v, free, registerOf);
+				active.add(v);
+				continue;
+			}
+
+			// No register left: spill the lightest interval, the one ending last among equals
+			int victim = v;
+			for (int a : active) {
+				if (registerOf[a] >= first && (weight[a] < weight[victim]
+						|| weight[a] == weight[victim] && end[a] > end[victim])) {
+					victim = a;
+				}
+			}
+			if (victim != v) {
+				active.remove(Integer.valueOf(victim));
+				assign(v, registerOf[victim], registerOf);
+				active.add(v);
+			}
+			spill(victim);
+		}
+	}
+
+	private void assign(int register, int machineRegister, int[] registerOf) {
+		registerOf[register] = machineRegister;
+		locations[register] = registers[machineRegister];
+		if (machineRegister >= callerSavedCount) {
+			calleeSavedUsed[machineRegister - callerSavedCount] = true;
+		}
+	}
+
+	/**
+	 * Gives the interval a slot free over its whole lifetime: a victim spilled
+	 * late started before intervals already in slots.
+	 */
+	private void spill(int register) {
+		int slot = 0;
+		while (slot < slotCount && slotBusyUntil[slot] >= start[register]) {
+			slot++;
+		}
+		if (slot == slotCount) {
+			if (slotCount == slotBusyUntil.length) {
+				slotBusyUntil = Arrays.copyOf(slotBusyUntil, slotCount * 2);
+			}
+			slotCount++;
+		}
+		slotBusyUntil[slot] = Math.max(slotBusyUntil[slot], end[register]);
+		locations[register] = (firstSlotOffset - 8 * slot) + "(%rbp)";
+		spillCount++;
+	}
+}
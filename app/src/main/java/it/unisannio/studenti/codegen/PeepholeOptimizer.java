@@ -0,0 +1,173 @@
+package it.unisannio.studenti.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites short instruction sequences of the generated code:
+ * <ul>
+ * <li>{@code push X; pop X} is removed;</li>
+ * <li>{@code push X; pop Y} becomes {@code mov X, Y};</li>
+ * <li>a jump to a label that immediately follows it is removed;</li>
+ * <li>a {@code mov %rbp, %rbx} static link walk is dropped, or shortened,
+ *     when %rbx already holds the frame it loads (or one on its way);</li>
+ * <li>a frame pointer load from the current frame, such as
+ *     {@code mov -8(%rbp), %rbx}, is dropped when %rbx already holds it.</li>
+ * </ul>
+ * The passes are repeated until nothing changes, since a rewrite can make
+ * another one applicable.
+ */
+public class PeepholeOptimizer {
+	private int removedCount = 0;
+
+	/**
+	 * @return the number of instructions removed so far
+	 */
+	public int getRemovedCount() {
+		return removedCount;
+	}
+
+	/**
+	 * @return the optimized code; the input list is not modified
+	 */
+	public List<Instruction> apply(List<Instruction> code) {
+		int before;
+		do {
+			before = removedCount;
+			code = frameReloads(pushPopPairs(code));
+		} while (removedCount > before);
+		return code;
+	}
+
+	/**
+	 * Removes push/pop pairs, turns them into moves, and removes jumps to the next label.
+	 */
+	private List<Instruction> pushPopPairs(List<Instruction> code) {
+		List<Instruction> out = new ArrayList<>(code.size());
+		for (int i = 0; i < code.size(); i++) {
+			Instruction instruction = code.get(i);
+			Instruction last = out.isEmpty() ? null : out.get(out.size() - 1);
+			if (instruction.is("pop") && last != null && last.is("push")) {
+				String source = last.getOperand(0);
+				String target = instruction.getOperand(0);
+				if (source.equals(target)) {
+					out.remove(out.size() - 1);
+					removedCount += 2;
+					continue;
+				}
+				if (isRegister(source) || isRegister(target)) { // No memory to memory move
+					out.set(out.size() - 1, Instruction.of("mov", source, target));
+					removedCount++;
+					continue;
+				}
+			}
+			if (isJump(instruction) && jumpsToNext(code, i)) {
+				removedCount++;
+				continue;
+			}
+			out.add(instruction);
+		}
+		return out;
+	}
+
+	/**
+	 * Removes reloads of a frame pointer already in %rbx. The frame in %rbx is
+	 * tracked as a number of static links followed from %rbp, or as the slot
+	 * of the current frame it was loaded from; it is forgotten at labels,
+	 * calls and any other write to %rbx or %rbp (or to that slot).
+	 */
+	private List<Instruction> frameReloads(List<Instruction> code) {
+		List<Instruction> out = new ArrayList<>(code.size());
+		int known = -1; // Static links from %rbp to the frame in %rbx, -1 if unknown
+		String knownSlot = null; // Slot of the current frame the frame in %rbx was loaded from
+		for (int i = 0; i < code.size(); i++) {
+			Instruction instruction = code.get(i);
+			if (isFrameSlotLoad(instruction)) {
+				if (instruction.getOperand(0).equals(knownSlot)) {
+					removedCount++;
+				} else {
+					out.add(instruction);
+					known = -1;
+					knownSlot = instruction.getOperand(0);
+				}
+				continue;
+			}
+			if (isFrameLoad(instruction)) {
+				knownSlot = null;
+				int links = 0;
+				while (i + 1 + links < code.size() && isStaticLinkLoad(code.get(i + 1 + links))) {
+					links++;
+				}
+				if (known >= 0 && known <= links) {
+					// Skip the walk up to the frame already loaded, the remaining links are followed below
+					removedCount += 1 + known;
+					i += known;
+				} else {
+					out.add(instruction);
+					known = 0;
+				}
+				continue;
+			}
+			if (isStaticLinkLoad(instruction)) {
+				if (known >= 0) {
+					known++;
+				}
+				knownSlot = null;
+			} else if (!instruction.isInstruction() || writesFrameRegisters(instruction)) {
+				known = -1;
+				knownSlot = null;
+			} else if (instruction.getDestination() != null && instruction.getDestination().equals(knownSlot)) {
+				knownSlot = null;
+			}
+			out.add(instruction);
+		}
+		return out;
+	}
+
+	private static boolean isRegister(String operand) {
+		return operand.startsWith("%");
+	}
+
+	private static boolean isJump(Instruction instruction) {
+		return instruction.isInstruction() && instruction.getOpcode().charAt(0) == 'j';
+	}
+
+	/**
+	 * @return true if the jump at {@code index} targets one of the labels right after it
+	 */
+	private static boolean jumpsToNext(List<Instruction> code, int index) {
+		String target = code.get(index).getOperand(0);
+		for (int i = index + 1; i < code.size() && code.get(i).isLabel(); i++) {
+			if (code.get(i).getLabel().equals(target)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** {@code mov %rbp, %rbx}: the start of a static link walk. */
+	private static boolean isFrameLoad(Instruction instruction) {
+		return instruction.is("mov") && instruction.getOperand(0).equals("%rbp") && instruction.getOperand(1).equals("%rbx");
+	}
+
+	/** {@code mov N(%rbp), %rbx}: a frame pointer read from the current frame. */
+	private static boolean isFrameSlotLoad(Instruction instruction) {
+		return instruction.is("mov") && instruction.getOperand(0).endsWith("(%rbp)") && instruction.getOperand(1).equals("%rbx");
+	}
+
+	/** {@code mov -8(%rbx), %rbx}: one step up the static link chain. */
+	private static boolean isStaticLinkLoad(Instruction instruction) {
+		return instruction.is("mov") && instruction.getOperand(0).equals("-8(%rbx)") && instruction.getOperand(1).equals("%rbx");
+	}
+
+	private static boolean writesFrameRegisters(Instruction instruction) {
+		if (instruction.is("call")) {
+			return !RuntimeLibrary.isRoutine(instruction.getOperand(0));
+		}
+		if (instruction.is("leave")) {
+			return true;
+		}
+		String destination = instruction.getDestination();
+		return "%rbx".equals(destination) || "%rbp".equals(destination);
+	}
+}
@@ -0,0 +1,57 @@
+package it.unisannio.studenti.codegen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The I/O runtime of the generated programs: buffered output with a fast
+ * integer formatting, buffered input with a fast integer parser, and the
+ * flush of the output when main returns. It is an assembly source shipped
+ * as the resource {@code runtime.s} and appended to every generated program,
+ * which then only needs the C start-up code to be linked.
+ * <p>
+ * The routines take and return their value in %rax and preserve every
+ * register but %rdx and %r10, which the code generators use as scratch
+ * registers only: READ and WRITE do not disturb the values kept in the
+ * other registers, unlike calls to {@code scanf} and {@code printf}.
+ */
+public final class RuntimeLibrary {
+	/** Writes %rax and a newline. */
+	public static final String WRITE = "pl0_write";
+	/** Returns the next input integer in %rax, or %rax unchanged at the end of the input. */
+	public static final String READ = "pl0_read";
+	/** Writes the buffered output. */
+	public static final String FLUSH = "pl0_flush";
+
+	private static final String RESOURCE = "runtime.s";
+	private static String assembly;
+
+	private RuntimeLibrary() {
+	}
+
+	/**
+	 * @return true if {@code label} is one of the runtime routines, which preserve %rbx and %rbp
+	 */
+	public static boolean isRoutine(String label) {
+		return label.equals(WRITE) || label.equals(READ) || label.equals(FLUSH);
+	}
+
+	/**
+	 * @return the assembly source of the runtime, to append to the generated code
+	 */
+	public static synchronized String getAssembly() {
+		if (assembly == null) {
+			try (InputStream in = RuntimeLibrary.class.getResourceAsStream(RESOURCE)) {
+				if (in == null) {
+					throw new IllegalStateException("Missing runtime resource " + RESOURCE);
+				}
+				assembly = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return assembly;
+	}
+}
@@ -0,0 +1,195 @@
+package it.unisannio.studenti.driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many PL/0 files in one JVM on a bounded pool of worker threads.
+ * <p>
+ * Inputs can be files, directories (searched recursively for {@code .pl0} files)
+ * or glob patterns such as {@code "gen/**.pl0"}. The generated ANTLR lexer and
+ * parser keep their DFA caches in static fields, so every worker reuses the
+ * predictions warmed up by the others. The output of each file is buffered and
+ * printed as one block, in input order, so diagnostics never interleave.
+ */
+public class BatchCompiler {
+
+	/** Outcome of one file of the batch. */
+	private static class Result {
+		final String file;
+		final boolean success;
+		final String out;
+		final String err;
+
+		Result(String file, boolean success, String out, String err) {
+			this.file = file;
+			this.success = success;
+			this.out = out;
+			this.err = err;
+		}
+	}
+
+	private final CompilerOptions options;
+	private final int jobs;
+
+	public BatchCompiler(CompilerOptions options, int jobs) {
+		this.options = options;
+		this.jobs = jobs > 0 ? jobs : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Compiles every file matched by the inputs.
+	 * @return the aggregate exit status: 0 if every file compiled, 1 otherwise
+	 */
+	public int compile(List<String> inputs, PrintStream out, PrintStream err) {
+		List<String> files;
+		try {
+			files = expand(inputs);
+		} catch (IOException e) {
+			err.println("[FATAL ERROR] Could not list the input files: " + e.getMessage());
+			return 1;
+		}
+		if (files.isEmpty()) {
+			err.println("[FAILURE] No .pl0 files match the given inputs.");
+			return 1;
+		}
+
+		long start = System.nanoTime();
+		int workers = Math.min(jobs, files.size());
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		int failed = 0;
+		try {
+			List<Future<Result>> results = new ArrayList<>();
+			for (String file : files) {
+				results.add(pool.submit(() -> compileOne(file)));
+			}
+			for (Future<Result> future : results) {
+				Result result = getResult(future);
+				if (!result.out.isEmpty()) {
+					out.println("=== " + result.file + " ===");
+					out.print(result.out);
+				}
+				if (!result.err.isEmpty()) {
+					err.println("=== " + result.file + " ===");
+					err.print(result.err);
+				}
+				if (!result.success) {
+					failed++;
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		out.println("\n[BATCH] " + files.size() + " file(s) compiled, " + failed + " failed, in "
+				+ elapsedMillis + " ms using " + workers + " worker(s).");
+		out.println("[BATCH] SLL parses falling back to full LL: " + TwoStageParser.getFallbackCount()
+				+ " of " + TwoStageParser.getParseCount() + ".");
+		return failed == 0 ? 0 : 1;
+	}
+
+	private Result compileOne(String file) {
+		ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+		ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+		boolean success;
+		try (PrintStream fileOut = new PrintStream(outBuffer, false, StandardCharsets.UTF_8);
+				PrintStream fileErr = new PrintStream(errBuffer, false, StandardCharsets.UTF_8)) {
+			// An error escaping the compilation of one file fails that file only, so the
+			// others are still reported; the JVM's own failures still end the batch.
+			try {
+				success = new Compilation(file, options, fileOut, fileErr).run();
+			} catch (StackOverflowError e) {
+				fileErr.println("\n[FATAL ERROR] The program is nested too deeply to be compiled.");
+				success = false;
+			} catch (VirtualMachineError e) {
+				throw e;
+			} catch (Throwable e) {
+				fileErr.println("\n[FATAL ERROR] An unexpected error occurred.");
+				fileErr.println("Details: " + e.getMessage());
+				e.printStackTrace(fileErr);
+				success = false;
+			}
+		}
+		return new Result(file, success,
+				outBuffer.toString(StandardCharsets.UTF_8),
+				errBuffer.toString(StandardCharsets.UTF_8));
+	}
+
+	private static Result getResult(Future<Result> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Batch compilation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Batch worker failed", e.getCause());
+		}
+	}
+
+	// --- Input expansion ---
+
+	/**
+	 * Expands files, directories and glob patterns into a sorted, duplicate-free list of files.
+	 */
+	static List<String> expand(List<String> inputs) throws IOException {
+		Set<String> files = new LinkedHashSet<>();
+		for (String input : inputs) {
+			if (CompilerCommand.isGlob(input)) {
+				files.addAll(matchGlob(input));
+			} else {
+				Path path = Paths.get(input);
+				if (Files.isDirectory(path)) {
+					files.addAll(walk(path, p -> p.toString().endsWith(".pl0")));
+				} else {
+					files.add(input);
+				}
+			}
+		}
+		return new ArrayList<>(files);
+	}
+
+	private static List<String> matchGlob(String pattern) throws IOException {
+		// Walk from the longest directory prefix that contains no glob characters
+		int firstGlobChar = pattern.length();
+		for (char c : new char[] {'*', '?', '[', '{'}) {
+			int index = pattern.indexOf(c);
+			if (index >= 0) firstGlobChar = Math.min(firstGlobChar, index);
+		}
+		int separator = pattern.lastIndexOf('/', firstGlobChar);
+		Path base = separator >= 0 ? Paths.get(pattern.substring(0, separator + 1)) : Paths.get(".");
+		String matcherPattern = separator >= 0 ? pattern : "./" + pattern;
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + matcherPattern);
+		if (!Files.isDirectory(base)) {
+			return new ArrayList<>();
+		}
+		return walk(base, matcher::matches);
+	}
+
+	private static List<String> walk(Path base, PathMatcher filter) throws IOException {
+		try (Stream<Path> paths = Files.walk(base)) {
+			return paths.filter(Files::isRegularFile)
+					.filter(filter::matches)
+					.map(Path::toString)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package it.unisannio.studenti.driver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.Trees;
+
+import grammar.PL0Lexer;
+import grammar.PL0Parser;
+
+import it.unisannio.studenti.ast.ASTJsonSerializer;
+import it.unisannio.studenti.ast.ASTNodeCounter;
+import it.unisannio.studenti.ast.PL0Resolver;
+import it.unisannio.studenti.ast.constructs.Program;
+import it.unisannio.studenti.codegen.ASTCodeGenerator;
+import it.unisannio.studenti.codegen.Instruction;
+import it.unisannio.studenti.codegen.IrCodeGenerator;
+import it.unisannio.studenti.codegen.PeepholeOptimizer;
+import it.unisannio.studenti.codegen.RuntimeLibrary;
+import it.unisannio.studenti.driver.CompilerOptions.Artifact;
+import it.unisannio.studenti.errors.SyntaxErrorListener;
+import it.unisannio.studenti.ir.IrBuilder;
+import it.unisannio.studenti.ir.IrProgram;
+import it.unisannio.studenti.json.AppendableJsonSink;
+import it.unisannio.studenti.json.ByteBufferJsonSink;
+import it.unisannio.studenti.json.CstJsonWriter;
+import it.unisannio.studenti.optimizer.ConstantFolder;
+import it.unisannio.studenti.optimizer.DeadProcedureEliminator;
+import it.unisannio.studenti.optimizer.Inliner;
+import it.unisannio.studenti.optimizer.IrOptimizer;
+import it.unisannio.studenti.stats.CompilerStats;
+import it.unisannio.studenti.symbolTable.Identifiers;
+import it.unisannio.studenti.symbolTable.InterningTokenFactory;
+import it.unisannio.studenti.symbolTable.SymbolTable;
+
+/**
+ * Compiles one PL/0 source file through every phase of the compiler,
+ * writing the artifacts next to the source file.
+ * <p>
+ * All progress messages and diagnostics go to the streams given to the
+ * constructor, so that several compilations can run concurrently in the
+ * same JVM (batch mode, compiler daemon) without mixing their output.
+ * The ANTLR lexer and parser share their DFA and prediction context caches
+ * (static in the generated classes) across all compilations of the JVM.
+ */
+public class Compilation {
+	private final String filePath;
+	private final CompilerOptions options;
+	private final PrintStream out;
+	private final PrintStream err;
+	private final PrintStream log; // progress messages: out, or nowhere in quiet mode
+	private final CompilerStats stats = new CompilerStats();
+
+	public Compilation(String filePath, CompilerOptions options, PrintStream out, PrintStream err) {
+		this.filePath = filePath;
+		this.options = options;
+		this.out = out;
+		this.err = err;
+		this.log = options.isQuiet() ? new PrintStream(OutputStream.nullOutputStream()) : out;
+	}
+
+	public CompilerStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Runs the whole pipeline.
+	 * @return true if the file was compiled without errors
+	 */
+	public boolean run() {
+		Path pl0FilePath = Paths.get(filePath);
+
+		log.println("--- PL/0 Compiler to x86 Assembly ---");
+		log.println("Target file: " + pl0FilePath.toAbsolutePath());
+		log.println("-------------------------------");
+
+		try {
+			// --- Phase 1: Lexical Analysis ---
+			log.println("\n[PHASE 1] Lexical Analysis...");
+			stats.begin("lexing");
+			CharStream input = CharStreams.fromFileName(pl0FilePath.toString());
+			PL0Lexer lexer = new PL0Lexer(input); // Here generating tokens
+			SyntaxErrorListener lexerErrorListener = new SyntaxErrorListener(err);
+			lexer.removeErrorListeners(); // Report to our stream instead of the console
+			lexer.addErrorListener(lexerErrorListener); // Add our listener to count errors
+			Identifiers identifiers = new Identifiers();
+			lexer.setTokenFactory(new InterningTokenFactory(identifiers, PL0Lexer.IDENTIFIER)); // Intern names while lexing
+
+			CommonTokenStream tokens = new CommonTokenStream(lexer); // Generate a token stream with lexer
+			tokens.fill(); // Force processing of all tokens to detect lexical errors
+			stats.end();
+			stats.count("chars", input.size());
+			stats.count("tokens", tokens.size());
+			stats.count("identifiers", identifiers.size());
+
+			if (lexerErrorListener.getErrorCount() > 0) {
+				err.println("[FAILURE] Lexical Analysis failed with " + lexerErrorListener.getErrorCount() + " error(s).");
+				return false;
+			}
+			log.println("[SUCCESS] Lexical Analysis complete.");
+
+			// --- Phase 2: Syntax Analysis ---
+			log.println("\n[PHASE 2] Syntax Analysis...");
+			stats.begin("parsing");
+			PL0Parser parser = new PL0Parser(tokens);
+
+			TwoStageParser twoStage = new TwoStageParser(parser);
+			ParseTree tree = twoStage.parse(new SyntaxErrorListener(err)); // AKA the derivation three
+			stats.end();
+			stats.count("llFallback", twoStage.usedFallback() ? 1 : 0);
+			if (options.isStatsEnabled()) {
+				stats.count("parseTreeNodes", CompilerStats.countParseTreeNodes(tree));
+			}
+
+			if (parser.getNumberOfSyntaxErrors() > 0) {
+				err.println("[FAILURE] Syntax Analysis failed with " + parser.getNumberOfSyntaxErrors() + " error(s).");
+				return false;
+			}
+			log.println("[SUCCESS] Syntax Analysis complete.");
+
+			if (options.emits(Artifact.CST)) {
+				if (!options.isQuiet()) {
+					out.println("\n--- Parse Tree (CST) ---");
+					out.println(Trees.toStringTree(tree, parser));
+				}
+
+				// Stream the JSON CST to its file
+				stats.begin("cst-json");
+				String jsonOutputFilePath = outputPath("-cst.json");
+				try {
+					long cstBytes = CstJsonWriter.write(tree, parser.getRuleNames(), Paths.get(jsonOutputFilePath));
+					stats.end();
+					stats.count("outputBytes", cstBytes);
+					log.println("\nParse Tree (CST) JSON written to: " + jsonOutputFilePath);
+				} catch (IOException e) {
+					err.println("\nFailed to write CST JSON: " + e.getMessage());
+				} finally {
+					stats.end(); // Also when writing failed
+				}
+			}
+
+			// --- Phase 3: Name Resolution (symbol table, semantic analysis and AST in one pass) ---
+			log.println("\n[PHASE 3] Name Resolution and Semantic Analysis...");
+			SymbolTable symbolTable = new SymbolTable(identifiers, err);
+			PL0Resolver resolver = new PL0Resolver(symbolTable, err);
+			Program ast;
+
+			try {
+				stats.begin("resolve");
+				try {
+					ast = (Program) resolver.visit(tree);
+				} finally {
+					stats.end();
+				}
+				stats.count("scopes", symbolTable.getScopeCount());
+				stats.count("symbols", symbolTable.getSymbolCount());
+				stats.count("errors", resolver.getErrorCount());
+				if (options.isStatsEnabled()) {
+					stats.count("astNodes", ASTNodeCounter.count(ast));
+				}
+
+				if (options.emits(Artifact.SYMBOLS)) {
+					// Print the final Symbol Table
+					symbolTable.printTable(out);
+				}
+				if (resolver.getErrorCount() > 0) {
+					err.println("[FAILURE] Semantic Analysis failed with " + resolver.getErrorCount() + " error(s).");
+					return false;
+				}
+				log.println("[SUCCESS] Symbol Table, semantic checks and AST complete.");
+			} catch (Exception e) {
+				err.println("[FAILURE] Semantic Analysis failed: " + e.getMessage());
+				e.printStackTrace(err);
+				return false;
+			}
+
+			if (!options.emits(Artifact.AST) && !options.emits(Artifact.ASM) && !options.emits(Artifact.IR)) {
+				log.println("\n[SUCCESS] Compilation complete, no further artifact requested.");
+				if (options.isStatsEnabled()) {
+					reportStats();
+				}
+				return true;
+			}
+
+			if (options.emits(Artifact.AST)) {
+				writeAst(ast);
+			}
+
+			// --- Phase 4: Optimization and Code Generation ---
+			if (!options.emits(Artifact.ASM) && !options.emits(Artifact.IR)) {
+				if (options.isStatsEnabled()) {
+					reportStats();
+				}
+				return true;
+			}
+
+			int phase = 4; // The following phases depend on the optimization level
+			if (options.getOptimizationLevel() >= 1) {
+				log.println("\n[PHASE " + phase++ + "] AST Optimization...");
+				stats.begin("optimize");
+				ConstantFolder folder = new ConstantFolder();
+				ast = folder.apply(ast);
+				DeadProcedureEliminator eliminator = new DeadProcedureEliminator();
+				ast = eliminator.apply(ast); // Before inlining, so that calls from dead code do not count
+				Inliner inliner = new Inliner();
+				ast = inliner.apply(ast);
+				ast = eliminator.apply(ast); // The procedures whose calls were all inlined
+				stats.end();
+				stats.count("folds", folder.getFoldCount());
+				stats.count("inlined", inliner.getInlineCount());
+				stats.count("removedProcedures", eliminator.getRemovedCount());
+				log.println("[SUCCESS] AST Optimization complete.");
+			}
+
+			IrProgram ir = null;
+			if (options.getOptimizationLevel() >= 2 || options.emits(Artifact.IR)) {
+				log.println("\n[PHASE " + phase++ + "] IR Construction...");
+				stats.begin("ir");
+				ir = IrBuilder.build(ast);
+				stats.end();
+				stats.count("functions", ir.getFunctions().size());
+				stats.count("blocks", ir.getBlockCount());
+				stats.count("irInstructions", ir.getInstructionCount());
+				log.println("[SUCCESS] IR Construction complete.");
+
+				if (options.getOptimizationLevel() >= 2) {
+					log.println("\n[PHASE " + phase++ + "] IR Optimization...");
+					stats.begin("ir-optimize");
+					IrOptimizer optimizer = new IrOptimizer();
+					optimizer.apply(ir);
+					stats.end();
+					stats.count("promoted", optimizer.getPromotedCount());
+					stats.count("hoistedFrames", optimizer.getHoistedFrameCount());
+					stats.count("constants", optimizer.getConstantCount());
+					stats.count("redundant", optimizer.getRedundantCount());
+					stats.count("hoisted", optimizer.getHoistedCount());
+					stats.count("dead", optimizer.getDeadCount());
+					stats.count("mergedBlocks", optimizer.getMergedBlockCount());
+					stats.count("copies", optimizer.getCopyCount());
+					stats.count("irInstructions", ir.getInstructionCount());
+					log.println("[SUCCESS] IR Optimization complete.");
+				}
+
+				if (options.emits(Artifact.IR)) {
+					String irOutputFilePath = outputPath("-ir.txt");
+					Files.write(Paths.get(irOutputFilePath), ir.toString().getBytes(StandardCharsets.UTF_8));
+					log.println("IR written to: " + irOutputFilePath);
+				}
+			}
+
+			if (options.emits(Artifact.ASM)) {
+				log.println("\n[PHASE " + phase + "] Code Generation...");
+
+				try {
+					stats.begin("codegen");
+					List<Instruction> code;
+					if (options.getOptimizationLevel() >= 2) {
+						IrCodeGenerator generator = new IrCodeGenerator();
+						generator.generate(ir);
+						code = generator.getInstructions();
+						stats.end();
+						stats.count("spills", generator.getSpillCount());
+					} else {
+						ASTCodeGenerator generator = new ASTCodeGenerator(options.getOptimizationLevel() >= 1);
+						generator.visit(ast);
+						code = generator.getInstructions();
+						stats.end();
+					}
+					stats.count("instructions", Instruction.countInstructions(code));
+
+					if (options.getOptimizationLevel() >= 1) {
+						stats.begin("peephole");
+						PeepholeOptimizer peephole = new PeepholeOptimizer();
+						code = peephole.apply(code);
+						stats.end();
+						stats.count("removed", peephole.getRemovedCount());
+					}
+
+					stats.begin("asm-write");
+					String assemblyCode = Instruction.toAssembly(code) + RuntimeLibrary.getAssembly();
+
+					// Write to file
+					String outputFilePath = outputPath(".s");
+					byte[] assemblyBytes = assemblyCode.getBytes();
+					Files.write(Paths.get(outputFilePath), assemblyBytes);
+					stats.end();
+					stats.count("instructions", Instruction.countInstructions(code));
+					stats.count("outputBytes", assemblyBytes.length);
+
+					log.println("[SUCCESS] Code Generation complete. Output: " + outputFilePath);
+				} catch (Exception e) {
+					err.println("[FAILURE] Code Generation failed: " + e.getMessage());
+					e.printStackTrace(err);
+					return false;
+				} finally {
+					stats.end(); // The phase running when an exception was thrown
+				}
+			}
+
+			if (options.isStatsEnabled()) {
+				reportStats();
+			}
+
+			// Print tree with GUI
+			// out.println("Opening ANTLR Parse Tree Inspector window...");
+			// org.antlr.v4.gui.Trees.inspect(tree, parser);
+			return true;
+
+		} catch (IOException e) {
+			err.println("\n[FATAL ERROR] Could not read the file: " + filePath);
+			err.println("Details: " + e.getMessage());
+		} catch (Exception e) {
+			err.println("\n[FATAL ERROR] An unexpected error occurred.");
+			err.println("Details: " + e.getMessage());
+			e.printStackTrace(err);
+		}
+		return false;
+	}
+
+	/**
+	 * Path of an artifact: the source path without its extension, plus the given suffix.
+	 */
+	private String outputPath(String suffix) {
+		int dot = filePath.lastIndexOf('.');
+		return (dot > 0 ? filePath.substring(0, dot) : filePath) + suffix;
+	}
+
+	/**
+	 * Dumps the AST on the console and streams it to its JSON file.
+	 */
+	private void writeAst(Program ast) throws IOException {
+		boolean pretty = !options.isCompactAst();
+		if (!options.isQuiet()) {
+			out.println("--- Abstract Syntax Tree (AST) ---");
+			Writer console = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			ASTJsonSerializer.write(ast, new AppendableJsonSink(console), pretty);
+			out.println();
+		}
+
+		// Stream the JSON AST to its file
+		stats.begin("ast-json");
+		String astOutputFilePath = outputPath("-ast.json");
+		try (FileChannel channel = FileChannel.open(Paths.get(astOutputFilePath), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBufferJsonSink sink = new ByteBufferJsonSink(channel);
+			ASTJsonSerializer.write(ast, sink, pretty);
+			stats.end();
+			stats.count("outputBytes", sink.getBytesWritten());
+			log.println("\nAST JSON written to: " + astOutputFilePath);
+		} catch (IOException e) {
+			err.println("\nFailed to write AST JSON: " + e.getMessage());
+		} finally {
+			stats.end(); // Also when writing failed
+		}
+	}
+
+	private void reportStats() {
+		if (options.getStatsMode().equals("json")) {
+			String statsOutputFilePath = outputPath("-stats.json");
+			try {
+				stats.writeJson(filePath, Paths.get(statsOutputFilePath));
+				out.println("\nCompiler statistics written to: " + statsOutputFilePath);
+			} catch (IOException e) {
+				err.println("\nFailed to write compiler statistics: " + e.getMessage());
+			}
+		} else {
+			stats.printTable(out);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package it.unisannio.studenti.driver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin command-line client of {@link CompilerServer}. It accepts the same
+ * arguments as {@code App}, sends them to the daemon together with the current
+ * directory, prints the daemon output and exits with the returned status.
+ * <p>
+ * Extra options: {@code --socket=<path>} selects the daemon endpoint and
+ * {@code --shutdown} stops it. When no daemon is reachable the
+ * command is compiled in-process, exactly as {@code App} would.
+ */
+public class CompilerClient {
+
+	public static void main(String[] args) {
+		SocketAddress address = CompilerServer.defaultAddress();
+		List<String> forwarded = new ArrayList<>();
+		boolean shutdown = false;
+		for (String arg : args) {
+			SocketAddress endpoint = CompilerServer.parseAddress(arg);
+			if (endpoint != null) {
+				address = endpoint;
+			} else if (arg.equals("--shutdown")) {
+				shutdown = true;
+			} else {
+				forwarded.add(arg);
+			}
+		}
+
+		SocketChannel channel;
+		try {
+			channel = SocketChannel.open(address);
+		} catch (IOException e) {
+			if (shutdown) {
+				System.err.println("[CLIENT] No PL/0 compiler daemon is listening on " + address);
+				System.exit(1);
+			}
+			System.err.println("[CLIENT] PL/0 compiler daemon not reachable on " + address + ", compiling locally.");
+			System.exit(CompilerCommand.execute(forwarded, null, System.out, System.err));
+			return;
+		}
+
+		try {
+			System.exit(send(channel, forwarded, shutdown));
+		} catch (IOException e) {
+			System.err.println("[CLIENT] Connection to the PL/0 compiler daemon failed: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	private static int send(SocketChannel channel, List<String> args, boolean shutdown) throws IOException {
+		try (channel) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+			out.write(CompilerServer.PROTOCOL_HEADER + "\n");
+			out.write("cwd " + Path.of("").toAbsolutePath() + "\n");
+			for (String arg : args) {
+				out.write("arg " + arg + "\n");
+			}
+			out.write(shutdown ? "shutdown\n" : "run\n");
+			out.flush();
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("O ")) {
+					System.out.println(line.substring(2));
+				} else if (line.startsWith("E ")) {
+					System.err.println(line.substring(2));
+				} else if (line.startsWith("X ")) {
+					System.out.flush();
+					return Integer.parseInt(line.substring(2).trim());
+				}
+			}
+		}
+		System.err.println("[CLIENT] The PL/0 compiler daemon closed the connection.");
+		return 1;
+	}
+}
@@ -0,0 +1,85 @@
+package it.unisannio.studenti.driver;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes one compiler command line: a single file, or a batch of files,
+ * directories and globs. Used by {@code App} for local compilations and by
+ * {@link CompilerServer} for the requests of {@link CompilerClient}.
+ */
+public class CompilerCommand {
+
+	private CompilerCommand() {
+	}
+
+	/**
+	 * Runs the command.
+	 * @param args the command-line arguments (options and inputs)
+	 * @param workingDir directory against which relative inputs are resolved
+	 * @return the exit status: 0 on success, 1 if a file failed to compile, 2 on usage errors
+	 */
+	public static int execute(List<String> args, Path workingDir, PrintStream out, PrintStream err) {
+		CompilerOptions options = new CompilerOptions();
+		List<String> inputs = new ArrayList<>();
+		boolean batch = false;
+		int jobs = 0;
+
+		for (String arg : args) {
+			if (options.parseOption(arg)) {
+				continue;
+			}
+			if (arg.equals("--batch")) {
+				batch = true;
+			} else if (arg.startsWith("--jobs=")) {
+				try {
+					jobs = Integer.parseInt(arg.substring("--jobs=".length()));
+				} catch (NumberFormatException e) {
+					err.println("Invalid number of jobs: " + arg);
+					return 2;
+				}
+			} else if (arg.startsWith("--")) {
+				err.println("Unknown option: " + arg);
+				printUsage(err);
+				return 2;
+			} else {
+				inputs.add(resolve(workingDir, arg));
+			}
+		}
+		if (inputs.isEmpty()) {
+			printUsage(err);
+			return 2;
+		}
+
+		String first = inputs.get(0);
+		boolean singleFile = inputs.size() == 1 && !isGlob(first) && !Files.isDirectory(Path.of(first));
+		if (!batch && singleFile) {
+			return new Compilation(first, options, out, err).run() ? 0 : 1;
+		}
+		return new BatchCompiler(options, jobs).compile(inputs, out, err);
+	}
+
+	public static void printUsage(PrintStream err) {
+		err.println("Usage: java App [--stats[=table|json]] [--emit=asm,ast,cst,symbols,ir] [--quiet] [-O0|-O1|-O2] [--ast-format=pretty|compact] <path_to_pl0_file>");
+		err.println("       java App [--stats[=table|json]] [--emit=asm,ast,cst,symbols,ir] [--quiet] [-O0|-O1|-O2] [--ast-format=pretty|compact] [--batch] [--jobs=<n>] <file|directory|glob>...");
+		err.println("       java App --server [--socket=<path>]");
+	}
+
+	static boolean isGlob(String input) {
+		return input.indexOf('*') >= 0 || input.indexOf('?') >= 0
+				|| input.indexOf('[') >= 0 || input.indexOf('{') >= 0;
+	}
+
+	private static String resolve(Path workingDir, String input) {
+		if (workingDir == null || input.startsWith("/")) {
+			return input;
+		}
+		if (!isGlob(input) && Path.of(input).isAbsolute()) {
+			return input;
+		}
+		return workingDir.resolve(input).toString();
+	}
+}
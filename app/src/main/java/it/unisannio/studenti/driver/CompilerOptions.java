@@ -0,0 +1,123 @@
+package it.unisannio.studenti.driver;
+
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * Options shared by every compilation started from the command line
+ * (single file, batch or daemon requests).
+ */
+public class CompilerOptions {
+
+	/** Outputs that can be selected with {@code --emit}. */
+	public enum Artifact {
+		ASM,     // the .s file
+		AST,     // the -ast.json file and the AST dump
+		CST,     // the -cst.json file and the parse tree dump
+		SYMBOLS, // the symbol table dump
+		IR       // the -ir.txt file, only when requested
+	}
+
+	private String statsMode; // null (disabled), "table" or "json"
+	private boolean compactAst = false;
+	private boolean quiet = false;
+	private EnumSet<Artifact> emit; // null: every artifact, or only the assembly when quiet
+	private int optimizationLevel = 1;
+
+	public String getStatsMode() {
+		return statsMode;
+	}
+
+	public void setStatsMode(String statsMode) {
+		this.statsMode = statsMode;
+	}
+
+	public boolean isStatsEnabled() {
+		return statsMode != null;
+	}
+
+	/**
+	 * @return true if the AST JSON is written without indentation and newlines
+	 */
+	public boolean isCompactAst() {
+		return compactAst;
+	}
+
+	public void setCompactAst(boolean compactAst) {
+		this.compactAst = compactAst;
+	}
+
+	/**
+	 * @return true if progress messages and console dumps are suppressed
+	 */
+	public boolean isQuiet() {
+		return quiet;
+	}
+
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+
+	/**
+	 * @return true if the given artifact has to be produced
+	 */
+	public boolean emits(Artifact artifact) {
+		if (emit == null) {
+			return artifact == Artifact.ASM || !quiet && artifact != Artifact.IR;
+		}
+		return emit.contains(artifact);
+	}
+
+	public void setEmit(EnumSet<Artifact> emit) {
+		this.emit = emit;
+	}
+
+	/**
+	 * @return 0 to generate code straight from the resolved AST, 1 to run the AST optimizations first,
+	 *         2 to also generate code through the three-address IR
+	 */
+	public int getOptimizationLevel() {
+		return optimizationLevel;
+	}
+
+	public void setOptimizationLevel(int optimizationLevel) {
+		this.optimizationLevel = optimizationLevel;
+	}
+
+	/**
+	 * Applies a command-line option to these options.
+	 * @return false if the option is not a compiler option
+	 */
+	public boolean parseOption(String arg) {
+		if (arg.equals("--stats") || arg.equals("--stats=table")) {
+			statsMode = "table";
+		} else if (arg.equals("--stats=json")) {
+			statsMode = "json";
+		} else if (arg.equals("--ast-format=compact")) {
+			compactAst = true;
+		} else if (arg.equals("--ast-format=pretty")) {
+			compactAst = false;
+		} else if (arg.equals("-O0") || arg.equals("-O1") || arg.equals("-O2")) {
+			optimizationLevel = arg.charAt(2) - '0';
+		} else if (arg.equals("--quiet")) {
+			quiet = true;
+		} else if (arg.startsWith("--emit=")) {
+			EnumSet<Artifact> artifacts = EnumSet.noneOf(Artifact.class);
+			for (String name : arg.substring("--emit=".length()).split(",")) {
+				try {
+					artifacts.add(Artifact.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+				} catch (IllegalArgumentException e) {
+					return false;
+				}
+			}
+			if (emit == null) {
+				emit = artifacts;
+			} else {
+				emit.addAll(artifacts);
+			}
+		} else {
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,320 @@
+package it.unisannio.studenti.driver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import grammar.PL0Lexer;
+import grammar.PL0Parser;
+
+/**
+ * Long-lived compiler daemon. It keeps the JVM, the compiler classes and the
+ * warmed ANTLR DFA caches resident and serves compile requests from
+ * {@link CompilerClient} over a Unix-domain socket, one virtual thread per
+ * request.
+ * <p>
+ * A request makes the daemon read and write files with its owner's
+ * permissions, so only the owner may connect: the default socket lives in
+ * {@code $XDG_RUNTIME_DIR}, or else in a {@code pl0-compiler-<user>}
+ * directory of the temporary directory that only the user can access, and
+ * the socket file itself is made private. There is no TCP endpoint, since a
+ * loopback port is open to every local user. A socket is only replaced when
+ * no daemon answers on it.
+ * <p>
+ * The protocol is line based (UTF-8). The client sends
+ * <pre>
+ * PL0C/1
+ * cwd &lt;client working directory&gt;
+ * arg &lt;argument&gt;        (once per command-line argument)
+ * run                   (or "shutdown" to stop the daemon)
+ * </pre>
+ * and the server answers with the command output, one line at a time, as
+ * {@code O <line>} (standard output) and {@code E <line>} (standard error),
+ * followed by {@code X <exit status>}.
+ */
+public class CompilerServer {
+	public static final String PROTOCOL_HEADER = "PL0C/1";
+	private static final String SOCKET_NAME = "pl0-compiler.sock";
+	private static final Set<PosixFilePermission> GROUP_OR_OTHERS = EnumSet.of(
+			PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+			PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE);
+
+	private final UnixDomainSocketAddress address;
+	private final PrintStream log;
+	private ServerSocketChannel serverChannel;
+	private volatile boolean running = true;
+
+	public CompilerServer(UnixDomainSocketAddress address, PrintStream log) {
+		this.address = address;
+		this.log = log;
+	}
+
+	/**
+	 * The default endpoint: a Unix-domain socket in the user's runtime
+	 * directory, or in a private directory of the temporary directory.
+	 */
+	public static UnixDomainSocketAddress defaultAddress() {
+		String runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+		Path directory = runtimeDir != null && !runtimeDir.isEmpty() && Files.isDirectory(Path.of(runtimeDir))
+				? Path.of(runtimeDir)
+				: Path.of(System.getProperty("java.io.tmpdir"), "pl0-compiler-" + System.getProperty("user.name"));
+		return UnixDomainSocketAddress.of(directory.resolve(SOCKET_NAME));
+	}
+
+	/**
+	 * Parses {@code --socket=<path>} into an address.
+	 * @return null if the argument is not an endpoint option
+	 */
+	public static UnixDomainSocketAddress parseAddress(String arg) {
+		if (arg.startsWith("--socket=") && arg.length() > "--socket=".length()) {
+			return UnixDomainSocketAddress.of(arg.substring("--socket=".length()));
+		}
+		return null;
+	}
+
+	/**
+	 * Serves requests until a client asks for shutdown.
+	 */
+	public void serve() throws IOException {
+		warmUp();
+
+		Path path = address.getPath();
+		if (address.equals(defaultAddress())) {
+			ensurePrivateDirectory(path.toAbsolutePath().getParent());
+		}
+		removeStaleSocket(path);
+		serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		serverChannel.bind(address);
+		if (isPosix(path)) {
+			Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+		}
+		log.println("[SERVER] PL/0 compiler daemon listening on " + address);
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			while (running) {
+				SocketChannel client;
+				try {
+					client = serverChannel.accept();
+				} catch (ClosedChannelException e) {
+					break; // Closed by a shutdown request
+				}
+				executor.submit(() -> handle(client));
+			}
+		} finally {
+			serverChannel.close();
+			Files.deleteIfExists(path);
+		}
+		log.println("[SERVER] PL/0 compiler daemon stopped.");
+	}
+
+	private static boolean isPosix(Path path) {
+		return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+	}
+
+	/**
+	 * Creates the directory of the default socket, accessible only by the
+	 * user, or checks that the existing one is.
+	 */
+	private static void ensurePrivateDirectory(Path directory) throws IOException {
+		if (!isPosix(directory)) {
+			Files.createDirectories(directory);
+			return;
+		}
+		try {
+			Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} catch (FileAlreadyExistsException e) {
+			// Checked below
+		}
+		if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+			throw new IOException(directory + " is not a directory");
+		}
+		String owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).getName();
+		if (!owner.equals(System.getProperty("user.name"))) {
+			throw new IOException(directory + " belongs to " + owner);
+		}
+		Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+		if (permissions.stream().anyMatch(GROUP_OR_OTHERS::contains)) {
+			throw new IOException(directory + " is accessible by other users");
+		}
+	}
+
+	/**
+	 * Removes the socket left by a daemon that is no longer running.
+	 * @throws IOException if a daemon still answers on it, or if the path is not a socket
+	 */
+	private static void removeStaleSocket(Path path) throws IOException {
+		if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+		if (!Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+			throw new IOException(path + " exists and is not a socket");
+		}
+		try {
+			SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+		} catch (ConnectException e) {
+			Files.deleteIfExists(path); // Nobody listening
+			return;
+		}
+		throw new IOException("A PL/0 compiler daemon is already listening on " + path);
+	}
+
+	/**
+	 * Loads the compiler classes and warms the lexer/parser DFA caches
+	 * before the first request arrives.
+	 */
+	private static void warmUp() {
+		String sample = "const k = 1; var x, y;\n"
+				+ "procedure p; begin read(x); ? y; write(x, y); ! x + y end;\n"
+				+ "begin x := -k * (2 + 3) / 4; if odd x then call p else while x <= 10 do x := x + 1; "
+				+ "if x # y then read x; write x end.";
+		PL0Lexer lexer = new PL0Lexer(CharStreams.fromString(sample));
+		lexer.removeErrorListeners();
+		PL0Parser parser = new PL0Parser(new CommonTokenStream(lexer));
+		parser.removeErrorListeners();
+		parser.program();
+	}
+
+	private void handle(SocketChannel client) {
+		try (client) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+			Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8));
+
+			if (!PROTOCOL_HEADER.equals(in.readLine())) {
+				writer.write("E Unsupported protocol, expected " + PROTOCOL_HEADER + "\nX 2\n");
+				writer.flush();
+				return;
+			}
+
+			Path workingDir = null;
+			List<String> args = new ArrayList<>();
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("cwd ")) {
+					workingDir = Path.of(line.substring(4));
+				} else if (line.startsWith("arg ")) {
+					args.add(line.substring(4));
+				} else if (line.equals("run")) {
+					run(args, workingDir, writer);
+					return;
+				} else if (line.equals("shutdown")) {
+					writer.write("O PL/0 compiler daemon shutting down.\nX 0\n");
+					writer.flush();
+					shutdown();
+					return;
+				}
+			}
+		} catch (IOException e) {
+			log.println("[SERVER] Request failed: " + e.getMessage());
+		}
+	}
+
+	private void run(List<String> args, Path workingDir, Writer writer) throws IOException {
+		int status;
+		try (PrintStream out = new PrintStream(new FramedOutputStream('O', writer), false, StandardCharsets.UTF_8);
+				PrintStream err = new PrintStream(new FramedOutputStream('E', writer), false, StandardCharsets.UTF_8)) {
+			try {
+				status = CompilerCommand.execute(args, workingDir, out, err);
+			} catch (RuntimeException e) {
+				err.println("[FATAL ERROR] An unexpected error occurred.");
+				e.printStackTrace(err);
+				status = 1;
+			}
+		}
+		synchronized (writer) {
+			writer.write("X " + status + "\n");
+			writer.flush();
+		}
+	}
+
+	private void shutdown() throws IOException {
+		running = false;
+		serverChannel.close();
+	}
+
+	/**
+	 * Sends every line written to it as one protocol line with the given tag.
+	 */
+	private static class FramedOutputStream extends OutputStream {
+		private final char tag;
+		private final Writer writer;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		FramedOutputStream(char tag, Writer writer) {
+			this.tag = tag;
+			this.writer = writer;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (b == '\n') {
+				sendLine();
+			} else {
+				line.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			int start = offset;
+			for (int i = offset; i < offset + length; i++) {
+				if (bytes[i] == '\n') {
+					line.write(bytes, start, i - start);
+					sendLine();
+					start = i + 1;
+				}
+			}
+			line.write(bytes, start, offset + length - start);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (line.size() > 0) {
+				sendLine();
+			}
+			synchronized (writer) {
+				writer.flush();
+			}
+		}
+
+		private void sendLine() throws IOException {
+			String text = line.toString(StandardCharsets.UTF_8);
+			line.reset();
+			synchronized (writer) {
+				writer.write(tag);
+				writer.write(' ');
+				writer.write(text);
+				writer.write('\n');
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package it.unisannio.studenti.driver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import grammar.PL0Parser;
+
+/**
+ * Parses with the two-stage strategy recommended by ANTLR: first with the
+ * faster SLL prediction and a bail-out error strategy, then, only if that
+ * fails, again from the start with full LL prediction and normal error
+ * reporting and recovery. SLL gives the same result as LL on every valid
+ * input it accepts, so the fallback only runs on syntax errors or on the
+ * rare inputs that need full-context prediction.
+ */
+public class TwoStageParser {
+	private static final LongAdder sllParses = new LongAdder();
+	private static final LongAdder llFallbacks = new LongAdder();
+
+	private final PL0Parser parser;
+	private boolean usedFallback = false;
+
+	public TwoStageParser(PL0Parser parser) {
+		this.parser = parser;
+	}
+
+	/**
+	 * Parses a whole program.
+	 * @param errorListener listener receiving syntax errors of the LL stage
+	 */
+	public ParseTree parse(ANTLRErrorListener errorListener) {
+		sllParses.increment();
+		usedFallback = false;
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		try {
+			return parser.program();
+		} catch (ParseCancellationException e) {
+			llFallbacks.increment();
+			usedFallback = true;
+			parser.getTokenStream().seek(0);
+			parser.reset();
+			parser.addErrorListener(errorListener);
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			return parser.program();
+		}
+	}
+
+	/**
+	 * @return true if the last parse needed the LL stage
+	 */
+	public boolean usedFallback() {
+		return usedFallback;
+	}
+
+	/** Number of parses started in this JVM. */
+	public static long getParseCount() {
+		return sllParses.sum();
+	}
+
+	/** Number of parses that fell back from SLL to full LL in this JVM. */
+	public static long getFallbackCount() {
+		return llFallbacks.sum();
+	}
+}
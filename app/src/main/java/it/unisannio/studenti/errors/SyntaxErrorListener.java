@@ -1,15 +1,36 @@
 package it.unisannio.studenti.errors;
 
+import java.io.PrintStream;
+
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
 
 public class SyntaxErrorListener extends BaseErrorListener {
+	private final PrintStream err;
 	private int errorCount = 0;
 
+	/**
+	 * Creates a listener that only counts errors.
+	 */
+	public SyntaxErrorListener() {
+		this(null);
+	}
+
+	/**
+	 * Creates a listener that counts errors and reports them to the given stream,
+	 * in the same format as ANTLR's console listener.
+	 */
+	public SyntaxErrorListener(PrintStream err) {
+		this.err = err;
+	}
+
 	@Override
 	public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
 		errorCount++;
+		if (err != null) {
+			err.println("line " + line + ":" + charPositionInLine + " " + msg);
+		}
 	}
 
 	public int getErrorCount() {
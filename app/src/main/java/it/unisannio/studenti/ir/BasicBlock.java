@@ -0,0 +1,93 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A maximal straight-line sequence of IR instructions: control enters at the
+ * first instruction and leaves at the last one, a terminator. PHI
+ * instructions, when present, come first.
+ * <p>
+ * Successors are the targets of the terminator; predecessors are kept by
+ * {@link IrFunction#computePredecessors()} and by the passes that change
+ * the edges, since the operands of PHIs follow their order.
+ */
+public class BasicBlock {
+	private final int id;
+	private final List<IrInstruction> instructions = new ArrayList<>();
+	private final List<BasicBlock> predecessors = new ArrayList<>();
+
+	BasicBlock(int id) {
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return "B" + id;
+	}
+
+	public List<IrInstruction> getInstructions() {
+		return instructions;
+	}
+
+	public List<BasicBlock> getPredecessors() {
+		return predecessors;
+	}
+
+	public void add(IrInstruction instruction) {
+		instructions.add(instruction);
+	}
+
+	/**
+	 * @return the last instruction, null if the block is still open
+	 */
+	public IrInstruction getTerminator() {
+		if (instructions.isEmpty()) {
+			return null;
+		}
+		IrInstruction last = instructions.get(instructions.size() - 1);
+		return last.getOpcode().isTerminator() ? last : null;
+	}
+
+	public boolean isTerminated() {
+		return getTerminator() != null;
+	}
+
+	public List<BasicBlock> getSuccessors() {
+		List<BasicBlock> successors = new ArrayList<>(2);
+		IrInstruction terminator = getTerminator();
+		if (terminator != null) {
+			for (int i = 0; i < terminator.getTargetCount(); i++) {
+				if (!successors.contains(terminator.getTarget(i))) {
+					successors.add(terminator.getTarget(i));
+				}
+			}
+		}
+		return successors;
+	}
+
+	/**
+	 * Removes an incoming edge together with the matching operand of every PHI.
+	 */
+	public void removePredecessor(BasicBlock predecessor) {
+		int index = predecessors.indexOf(predecessor);
+		if (index < 0) {
+			return;
+		}
+		predecessors.remove(index);
+		for (IrInstruction instruction : instructions) {
+			if (instruction.getOpcode() != Opcode.PHI) {
+				break;
+			}
+			instruction.removeOperand(index);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,192 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dominator tree of a function, computed with the iterative algorithm
+ * of Cooper, Harvey and Kennedy over the reverse postorder of the blocks
+ * reachable from the entry, and the dominance frontiers used to place PHIs.
+ * <p>
+ * The tree describes the function as it was when the object was built: a
+ * pass that changes the edges must compute it again.
+ */
+public class Dominators {
+	private final List<BasicBlock> reversePostorder;
+	private final Map<BasicBlock, Integer> order = new HashMap<>();
+	private final Map<BasicBlock, BasicBlock> idom = new HashMap<>();
+	private final Map<BasicBlock, List<BasicBlock>> children = new HashMap<>();
+	private final Map<BasicBlock, Integer> preorder = new HashMap<>(); // Dominator tree numbering
+	private final Map<BasicBlock, Integer> lastDescendant = new HashMap<>();
+	private Map<BasicBlock, Set<BasicBlock>> frontiers;
+
+	public Dominators(IrFunction function) {
+		reversePostorder = computeReversePostorder(function.getEntry());
+		for (int i = 0; i < reversePostorder.size(); i++) {
+			order.put(reversePostorder.get(i), i);
+		}
+		computeImmediateDominators(function.getEntry());
+		for (BasicBlock block : reversePostorder) {
+			children.put(block, new ArrayList<>());
+		}
+		for (BasicBlock block : reversePostorder) {
+			BasicBlock parent = idom.get(block);
+			if (parent != block) {
+				children.get(parent).add(block);
+			}
+		}
+		numberTree(function.getEntry());
+	}
+
+	private static List<BasicBlock> computeReversePostorder(BasicBlock entry) {
+		List<BasicBlock> postorder = new ArrayList<>();
+		Set<BasicBlock> visited = new HashSet<>();
+		ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+		ArrayDeque<Integer> nextSuccessor = new ArrayDeque<>();
+		visited.add(entry);
+		blocks.push(entry);
+		nextSuccessor.push(0);
+		while (!blocks.isEmpty()) {
+			BasicBlock block = blocks.peek();
+			int next = nextSuccessor.pop();
+			List<BasicBlock> successors = block.getSuccessors();
+			if (next < successors.size()) {
+				nextSuccessor.push(next + 1);
+				BasicBlock successor = successors.get(next);
+				if (visited.add(successor)) {
+					blocks.push(successor);
+					nextSuccessor.push(0);
+				}
+			} else {
+				blocks.pop();
+				postorder.add(block);
+			}
+		}
+		Collections.reverse(postorder);
+		return postorder;
+	}
+
+	private void computeImmediateDominators(BasicBlock entry) {
+		idom.put(entry, entry);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (BasicBlock block : reversePostorder) {
+				if (block == entry) {
+					continue;
+				}
+				BasicBlock dominator = null;
+				for (BasicBlock predecessor : block.getPredecessors()) {
+					if (idom.containsKey(predecessor)) {
+						dominator = dominator == null ? predecessor : intersect(predecessor, dominator);
+					}
+				}
+				if (dominator != idom.get(block)) {
+					idom.put(block, dominator);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	private BasicBlock intersect(BasicBlock a, BasicBlock b) {
+		while (a != b) {
+			while (order.get(a) > order.get(b)) {
+				a = idom.get(a);
+			}
+			while (order.get(b) > order.get(a)) {
+				b = idom.get(b);
+			}
+		}
+		return a;
+	}
+
+	/** Numbers the tree in preorder, so that dominance is an interval test. */
+	private void numberTree(BasicBlock entry) {
+		int counter = 0;
+		ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+		ArrayDeque<Integer> nextChild = new ArrayDeque<>();
+		preorder.put(entry, counter++);
+		blocks.push(entry);
+		nextChild.push(0);
+		while (!blocks.isEmpty()) {
+			BasicBlock block = blocks.peek();
+			int next = nextChild.pop();
+			List<BasicBlock> blockChildren = children.get(block);
+			if (next < blockChildren.size()) {
+				nextChild.push(next + 1);
+				BasicBlock child = blockChildren.get(next);
+				preorder.put(child, counter++);
+				blocks.push(child);
+				nextChild.push(0);
+			} else {
+				blocks.pop();
+				lastDescendant.put(block, counter - 1);
+			}
+		}
+	}
+
+	/**
+	 * @return the reachable blocks, each one after all its dominators
+	 */
+	public List<BasicBlock> getReversePostorder() {
+		return reversePostorder;
+	}
+
+	public boolean isReachable(BasicBlock block) {
+		return order.containsKey(block);
+	}
+
+	/**
+	 * @return the immediate dominator, null for the entry
+	 */
+	public BasicBlock getImmediateDominator(BasicBlock block) {
+		BasicBlock dominator = idom.get(block);
+		return dominator == block ? null : dominator;
+	}
+
+	/** The blocks immediately dominated by the given one. */
+	public List<BasicBlock> getChildren(BasicBlock block) {
+		return children.get(block);
+	}
+
+	/**
+	 * @return true if every path from the entry to {@code b} goes through {@code a} (a block dominates itself)
+	 */
+	public boolean dominates(BasicBlock a, BasicBlock b) {
+		int number = preorder.get(b);
+		return preorder.get(a) <= number && number <= lastDescendant.get(a);
+	}
+
+	/**
+	 * @return the blocks where the dominance of {@code block} ends: those with
+	 *         a predecessor it dominates, that it does not strictly dominate
+	 */
+	public Set<BasicBlock> getDominanceFrontier(BasicBlock block) {
+		if (frontiers == null) {
+			frontiers = new HashMap<>();
+			for (BasicBlock b : reversePostorder) {
+				frontiers.put(b, new HashSet<>());
+			}
+			for (BasicBlock b : reversePostorder) {
+				if (b.getPredecessors().size() < 2) {
+					continue;
+				}
+				for (BasicBlock predecessor : b.getPredecessors()) {
+					BasicBlock runner = predecessor;
+					while (isReachable(runner) && runner != idom.get(b)) {
+						frontiers.get(runner).add(b);
+						runner = idom.get(runner);
+					}
+				}
+			}
+		}
+		return frontiers.get(block);
+	}
+}
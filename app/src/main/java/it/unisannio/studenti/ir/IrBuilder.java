@@ -0,0 +1,278 @@
+package it.unisannio.studenti.ir;
+
+import it.unisannio.studenti.ast.ASTVisitor;
+import it.unisannio.studenti.ast.constructs.*;
+import it.unisannio.studenti.symbolTable.Slot;
+
+/**
+ * Lowers a resolved AST to three-address IR: one {@link IrFunction} for the
+ * main block and one per procedure, with expressions flattened into
+ * instructions on fresh virtual registers and IF/WHILE turned into blocks
+ * and branches.
+ * <p>
+ * Variables stay in memory: every use is a LOAD and every assignment a
+ * STORE, non-local ones through a FRAME instruction computing the frame
+ * pointer. WHILE loops are laid out with the condition block after the
+ * body, so that instruction selection emits one conditional jump per
+ * iteration.
+ * <p>
+ * Expressions return their value as an {@link Operand}; statements return null.
+ */
+public class IrBuilder implements ASTVisitor<Operand> {
+	private final IrProgram program = new IrProgram();
+	private IrFunction function;
+	private BasicBlock current;
+
+	public static IrProgram build(Program program) {
+		IrBuilder builder = new IrBuilder();
+		program.accept(builder);
+		return builder.program;
+	}
+
+	private void emit(IrInstruction instruction) {
+		current.add(instruction);
+	}
+
+	/** Makes {@code block} the next block of the layout and the insertion point. */
+	private void startBlock(BasicBlock block) {
+		function.place(block);
+		current = block;
+	}
+
+	/**
+	 * Lowers a block body into a new function: its procedures first (each in a function of its own).
+	 */
+	private void buildFunction(String name, String label, Block block) {
+		IrFunction outerFunction = function;
+		BasicBlock outerBlock = current;
+
+		int firstProcedure = program.getFunctions().size();
+		for (ProcedureDeclaration proc : block.getProcs()) {
+			proc.accept(this);
+		}
+
+		function = new IrFunction(name, label, block.getNestingLevel(), block.getLocalsSize());
+		for (IrFunction nested : program.getFunctions().subList(firstProcedure, program.getFunctions().size())) {
+			if (nested.getParent() == null) {
+				nested.setParent(function);
+			}
+		}
+		if (block.getNestingLevel() == 0) {
+			program.getFunctions().add(0, function);
+		} else {
+			program.add(function);
+		}
+		startBlock(function.newBlock());
+		block.getStatement().accept(this);
+		emit(IrInstruction.ret());
+		function.computePredecessors();
+
+		function = outerFunction;
+		current = outerBlock;
+	}
+
+	/**
+	 * @return the frame pointer operand of a slot, null for the current frame
+	 */
+	private Operand frameOf(Slot slot) {
+		if (slot.getLevelDelta() == 0) {
+			return null;
+		}
+		int frame = function.newRegister();
+		emit(IrInstruction.frame(frame, slot.getLevelDelta()));
+		return Operand.register(frame);
+	}
+
+	private Operand load(Slot slot) {
+		Operand frame = frameOf(slot);
+		int value = function.newRegister();
+		emit(IrInstruction.load(value, Variable.of(slot), frame));
+		return Operand.register(value);
+	}
+
+	private void store(Slot slot, Operand value) {
+		Operand frame = frameOf(slot);
+		emit(IrInstruction.store(Variable.of(slot), value, frame));
+	}
+
+	/**
+	 * Ends the current block with a branch on the condition.
+	 */
+	private void branch(Condition cond, BasicBlock ifTrue, BasicBlock ifFalse) {
+		if (cond instanceof OddCondition) {
+			Operand value = ((OddCondition) cond).getExpression().accept(this);
+			emit(IrInstruction.branch("odd", value, null, ifTrue, ifFalse));
+		} else {
+			RelationalCondition rel = (RelationalCondition) cond;
+			Operand left = rel.getLeft().accept(this);
+			Operand right = rel.getRight().accept(this);
+			emit(IrInstruction.branch(rel.getOperator(), left, right, ifTrue, ifFalse));
+		}
+	}
+
+	// --- Declarations ---
+
+	@Override
+	public Operand visit(Program program) {
+		buildFunction("main", "main", program.getBlock());
+		return null;
+	}
+
+	@Override
+	public Operand visit(Block block) {
+		throw new IllegalStateException("Blocks are lowered by their program or procedure");
+	}
+
+	@Override
+	public Operand visit(ConstDeclaration decl) {
+		return null; // Constant uses are lowered to their values
+	}
+
+	@Override
+	public Operand visit(VarDeclaration decl) {
+		return null; // Variables live in the frame (localsSize)
+	}
+
+	@Override
+	public Operand visit(ProcedureDeclaration decl) {
+		buildFunction(decl.getName(), "proc_" + decl.getName(), decl.getBlock());
+		return null;
+	}
+
+	// --- Statements ---
+
+	@Override
+	public Operand visit(AssignmentStatement stmt) {
+		store(stmt.getSlot(), stmt.getExpression().accept(this));
+		return null;
+	}
+
+	@Override
+	public Operand visit(CallStatement stmt) {
+		emit(IrInstruction.call("proc_" + stmt.getProcedureName(), frameOf(stmt.getSlot())));
+		return null;
+	}
+
+	@Override
+	public Operand visit(BeginStatement stmt) {
+		for (Statement s : stmt.getStatements()) {
+			s.accept(this);
+		}
+		return null;
+	}
+
+	@Override
+	public Operand visit(IfStatement stmt) {
+		BasicBlock thenBlock = function.newBlock();
+		BasicBlock endBlock = function.newBlock();
+		BasicBlock elseBlock = stmt.getElseStatement() != null ? function.newBlock() : endBlock;
+
+		branch(stmt.getCondition(), thenBlock, elseBlock);
+		startBlock(thenBlock);
+		stmt.getThenStatement().accept(this);
+		emit(IrInstruction.jump(endBlock));
+
+		if (stmt.getElseStatement() != null) {
+			startBlock(elseBlock);
+			stmt.getElseStatement().accept(this);
+			emit(IrInstruction.jump(endBlock));
+		}
+		startBlock(endBlock);
+		return null;
+	}
+
+	@Override
+	public Operand visit(WhileStatement stmt) {
+		BasicBlock bodyBlock = function.newBlock();
+		BasicBlock conditionBlock = function.newBlock();
+		BasicBlock endBlock = function.newBlock();
+
+		emit(IrInstruction.jump(conditionBlock));
+		startBlock(bodyBlock);
+		stmt.getDoStatement().accept(this);
+		emit(IrInstruction.jump(conditionBlock));
+
+		startBlock(conditionBlock);
+		branch(stmt.getCondition(), bodyBlock, endBlock);
+		startBlock(endBlock);
+		return null;
+	}
+
+	@Override
+	public Operand visit(ReadStatement stmt) {
+		for (Slot slot : stmt.getSlots()) {
+			Operand previous = load(slot); // Kept when the input is exhausted
+			int value = function.newRegister();
+			emit(IrInstruction.read(value, previous));
+			store(slot, Operand.register(value));
+		}
+		return null;
+	}
+
+	@Override
+	public Operand visit(WriteStatement stmt) {
+		for (Expression expr : stmt.getExpressions()) {
+			emit(IrInstruction.write(expr.accept(this)));
+		}
+		return null;
+	}
+
+	@Override
+	public Operand visit(SkipStatement stmt) {
+		return null;
+	}
+
+	// --- Expressions ---
+
+	@Override
+	public Operand visit(BinaryExpression expr) {
+		Operand left = expr.getLeft().accept(this);
+		Operand right = expr.getRight().accept(this);
+		Opcode opcode;
+		switch (expr.getOperator()) {
+			case "+": opcode = Opcode.ADD; break;
+			case "-": opcode = Opcode.SUB; break;
+			case "*": opcode = Opcode.MUL; break;
+			case "/": opcode = Opcode.DIV; break;
+			default: throw new IllegalArgumentException("Unknown operator: " + expr.getOperator());
+		}
+		int result = function.newRegister();
+		emit(IrInstruction.binary(opcode, result, left, right));
+		return Operand.register(result);
+	}
+
+	@Override
+	public Operand visit(UnaryExpression expr) {
+		Operand operand = expr.getOperand().accept(this);
+		if (!expr.getOperator().equals("-")) {
+			return operand;
+		}
+		int result = function.newRegister();
+		emit(IrInstruction.neg(result, operand));
+		return Operand.register(result);
+	}
+
+	@Override
+	public Operand visit(NumberLiteral expr) {
+		return Operand.constant(expr.getValue());
+	}
+
+	@Override
+	public Operand visit(VariableAccess expr) {
+		Slot slot = expr.getSlot();
+		if (slot.isConstant()) {
+			return Operand.constant(slot.getValue());
+		}
+		return load(slot);
+	}
+
+	@Override
+	public Operand visit(OddCondition cond) {
+		throw new IllegalStateException("Conditions are lowered as branches");
+	}
+
+	@Override
+	public Operand visit(RelationalCondition cond) {
+		throw new IllegalStateException("Conditions are lowered as branches");
+	}
+}
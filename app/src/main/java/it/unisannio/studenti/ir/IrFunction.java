@@ -0,0 +1,168 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The control-flow graph of the main program or of one procedure: its basic
+ * blocks in layout order, the first one being the entry, and the counter of
+ * its virtual registers.
+ */
+public class IrFunction {
+	private final String name;
+	private final String label;
+	private final int nestingLevel;
+	private final int localsSize;
+	private final List<BasicBlock> blocks = new ArrayList<>();
+	private IrFunction parent;
+	private int registerCount = 0;
+	private int blockCount = 0;
+
+	/**
+	 * @param name the PL/0 name, "main" for the program
+	 * @param label the assembly label of the entry point
+	 * @param nestingLevel the nesting level of the body
+	 * @param localsSize the bytes of the variables in the frame
+	 */
+	public IrFunction(String name, String label, int nestingLevel, int localsSize) {
+		this.name = name;
+		this.label = label;
+		this.nestingLevel = nestingLevel;
+		this.localsSize = localsSize;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public boolean isMain() {
+		return nestingLevel == 0;
+	}
+
+	public int getNestingLevel() {
+		return nestingLevel;
+	}
+
+	public int getLocalsSize() {
+		return localsSize;
+	}
+
+	/**
+	 * @return the function of the enclosing block, null for the main program
+	 */
+	public IrFunction getParent() {
+		return parent;
+	}
+
+	void setParent(IrFunction parent) {
+		this.parent = parent;
+	}
+
+	public List<BasicBlock> getBlocks() {
+		return blocks;
+	}
+
+	public BasicBlock getEntry() {
+		return blocks.get(0);
+	}
+
+	/**
+	 * @return a new block, not yet part of the layout
+	 */
+	public BasicBlock newBlock() {
+		return new BasicBlock(blockCount++);
+	}
+
+	/**
+	 * Appends a block to the layout.
+	 */
+	public void place(BasicBlock block) {
+		blocks.add(block);
+	}
+
+	public int newRegister() {
+		return registerCount++;
+	}
+
+	/** Virtual registers are numbered from 0 to this count, excluded. */
+	public int getRegisterCount() {
+		return registerCount;
+	}
+
+	/**
+	 * Recomputes the predecessor lists from the terminators, in layout order.
+	 * Only valid while the function has no PHI instructions.
+	 */
+	public void computePredecessors() {
+		for (BasicBlock block : blocks) {
+			block.getPredecessors().clear();
+		}
+		for (BasicBlock block : blocks) {
+			for (BasicBlock successor : block.getSuccessors()) {
+				successor.getPredecessors().add(block);
+			}
+		}
+	}
+
+	/**
+	 * Removes the blocks that cannot be reached from the entry, together with
+	 * their edges to the reachable ones.
+	 * @return the number of blocks removed
+	 */
+	public int removeUnreachableBlocks() {
+		Set<BasicBlock> reachable = new HashSet<>();
+		ArrayDeque<BasicBlock> work = new ArrayDeque<>();
+		reachable.add(getEntry());
+		work.push(getEntry());
+		while (!work.isEmpty()) {
+			for (BasicBlock successor : work.pop().getSuccessors()) {
+				if (reachable.add(successor)) {
+					work.push(successor);
+				}
+			}
+		}
+		int before = blocks.size();
+		for (BasicBlock block : blocks) {
+			if (!reachable.contains(block)) {
+				for (BasicBlock successor : block.getSuccessors()) {
+					successor.removePredecessor(block);
+				}
+			}
+		}
+		blocks.removeIf(block -> !reachable.contains(block));
+		return before - blocks.size();
+	}
+
+	public int getInstructionCount() {
+		int count = 0;
+		for (BasicBlock block : blocks) {
+			count += block.getInstructions().size();
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("function ").append(name).append(" (level ").append(nestingLevel)
+				.append(", locals ").append(localsSize).append(")\n");
+		for (BasicBlock block : blocks) {
+			sb.append(block.getName()).append(':');
+			if (!block.getPredecessors().isEmpty()) {
+				sb.append("  ; from ").append(block.getPredecessors());
+			}
+			sb.append('\n');
+			for (IrInstruction instruction : block.getInstructions()) {
+				sb.append("    ").append(instruction).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+}
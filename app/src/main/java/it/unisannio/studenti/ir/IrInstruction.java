@@ -0,0 +1,245 @@
+package it.unisannio.studenti.ir;
+
+/**
+ * A three-address instruction: an {@link Opcode}, an optional result
+ * register and its operands, plus the extra data of some opcodes (the
+ * variable of LOAD and STORE, the relation of BRANCH, the procedure of
+ * CALL, the levels of FRAME and the target blocks of the terminators).
+ * <p>
+ * Instructions are mutable so that optimization passes can rewrite them in place.
+ */
+public final class IrInstruction {
+	public static final int NO_RESULT = -1;
+
+	private Opcode opcode;
+	private int result;
+	private Operand[] operands;
+	private Variable variable;
+	private String relation;
+	private String procedure;
+	private int levels;
+	private BasicBlock[] targets;
+
+	private IrInstruction(Opcode opcode, int result, Operand... operands) {
+		this.opcode = opcode;
+		this.result = result;
+		this.operands = operands;
+	}
+
+	// --- Factories ---
+
+	public static IrInstruction copy(int result, Operand value) {
+		return new IrInstruction(Opcode.COPY, result, value);
+	}
+
+	/**
+	 * @param opcode ADD, SUB, MUL or DIV
+	 */
+	public static IrInstruction binary(Opcode opcode, int result, Operand left, Operand right) {
+		return new IrInstruction(opcode, result, left, right);
+	}
+
+	public static IrInstruction neg(int result, Operand value) {
+		return new IrInstruction(Opcode.NEG, result, value);
+	}
+
+	public static IrInstruction frame(int result, int levels) {
+		IrInstruction instruction = new IrInstruction(Opcode.FRAME, result);
+		instruction.levels = levels;
+		return instruction;
+	}
+
+	/**
+	 * @param frame the frame pointer of a non-local variable, null for a local one
+	 */
+	public static IrInstruction load(int result, Variable variable, Operand frame) {
+		IrInstruction instruction = frame == null
+				? new IrInstruction(Opcode.LOAD, result)
+				: new IrInstruction(Opcode.LOAD, result, frame);
+		instruction.variable = variable;
+		return instruction;
+	}
+
+	/**
+	 * @param frame the frame pointer of a non-local variable, null for a local one
+	 */
+	public static IrInstruction store(Variable variable, Operand value, Operand frame) {
+		IrInstruction instruction = frame == null
+				? new IrInstruction(Opcode.STORE, NO_RESULT, value)
+				: new IrInstruction(Opcode.STORE, NO_RESULT, value, frame);
+		instruction.variable = variable;
+		return instruction;
+	}
+
+	public static IrInstruction read(int result, Operand previous) {
+		return new IrInstruction(Opcode.READ, result, previous);
+	}
+
+	public static IrInstruction write(Operand value) {
+		return new IrInstruction(Opcode.WRITE, NO_RESULT, value);
+	}
+
+	/**
+	 * @param staticLink the frame pointer passed as static link, null for the current frame
+	 */
+	public static IrInstruction call(String procedure, Operand staticLink) {
+		IrInstruction instruction = staticLink == null
+				? new IrInstruction(Opcode.CALL, NO_RESULT)
+				: new IrInstruction(Opcode.CALL, NO_RESULT, staticLink);
+		instruction.procedure = procedure;
+		return instruction;
+	}
+
+	/**
+	 * @param operands one per predecessor of the block, in the same order
+	 */
+	public static IrInstruction phi(int result, Operand... operands) {
+		return new IrInstruction(Opcode.PHI, result, operands);
+	}
+
+	public static IrInstruction jump(BasicBlock target) {
+		IrInstruction instruction = new IrInstruction(Opcode.JUMP, NO_RESULT);
+		instruction.targets = new BasicBlock[] {target};
+		return instruction;
+	}
+
+	/**
+	 * @param relation "=", "#", "<", "<=", ">", ">=", or "odd" with a single operand
+	 */
+	public static IrInstruction branch(String relation, Operand left, Operand right, BasicBlock ifTrue, BasicBlock ifFalse) {
+		IrInstruction instruction = right == null
+				? new IrInstruction(Opcode.BRANCH, NO_RESULT, left)
+				: new IrInstruction(Opcode.BRANCH, NO_RESULT, left, right);
+		instruction.relation = relation;
+		instruction.targets = new BasicBlock[] {ifTrue, ifFalse};
+		return instruction;
+	}
+
+	public static IrInstruction ret() {
+		return new IrInstruction(Opcode.RETURN, NO_RESULT);
+	}
+
+	// --- Accessors ---
+
+	public Opcode getOpcode() {
+		return opcode;
+	}
+
+	public boolean hasResult() {
+		return result != NO_RESULT;
+	}
+
+	/** The register defined by the instruction, {@link #NO_RESULT} if none. */
+	public int getResult() {
+		return result;
+	}
+
+	public void setResult(int result) {
+		this.result = result;
+	}
+
+	public int getOperandCount() {
+		return operands.length;
+	}
+
+	public Operand getOperand(int index) {
+		return operands[index];
+	}
+
+	public void setOperand(int index, Operand operand) {
+		operands[index] = operand;
+	}
+
+	/** Removes an operand, e.g. the one of a removed predecessor from a PHI. */
+	public void removeOperand(int index) {
+		Operand[] remaining = new Operand[operands.length - 1];
+		System.arraycopy(operands, 0, remaining, 0, index);
+		System.arraycopy(operands, index + 1, remaining, index, remaining.length - index);
+		operands = remaining;
+	}
+
+	public Variable getVariable() {
+		return variable;
+	}
+
+	public String getRelation() {
+		return relation;
+	}
+
+	public String getProcedure() {
+		return procedure;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getTargetCount() {
+		return targets == null ? 0 : targets.length;
+	}
+
+	public BasicBlock getTarget(int index) {
+		return targets[index];
+	}
+
+	public void setTarget(int index, BasicBlock target) {
+		targets[index] = target;
+	}
+
+	/**
+	 * Turns this instruction into {@code result = value}, e.g. once its value is known.
+	 */
+	public void becomeCopy(Operand value) {
+		opcode = Opcode.COPY;
+		operands = new Operand[] {value};
+		variable = null;
+		relation = null;
+	}
+
+	/**
+	 * Turns a BRANCH into a JUMP to the given target.
+	 */
+	public void becomeJump(BasicBlock target) {
+		opcode = Opcode.JUMP;
+		operands = new Operand[0];
+		relation = null;
+		targets = new BasicBlock[] {target};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		if (hasResult()) {
+			sb.append('v').append(result).append(" = ");
+		}
+		sb.append(opcode);
+		switch (opcode) {
+			case FRAME:
+				sb.append(' ').append(levels);
+				break;
+			case LOAD:
+				sb.append(' ').append(variable);
+				break;
+			case STORE:
+				sb.append(' ').append(variable).append(',');
+				break;
+			case CALL:
+				sb.append(' ').append(procedure);
+				break;
+			case BRANCH:
+				sb.append(' ').append(relation);
+				break;
+			default:
+				break;
+		}
+		for (int i = 0; i < operands.length; i++) {
+			sb.append(i == 0 ? " " : ", ").append(operands[i]);
+		}
+		if (targets != null) {
+			for (int i = 0; i < targets.length; i++) {
+				sb.append(i == 0 && operands.length == 0 ? " " : ", ").append(targets[i].getName());
+			}
+		}
+		return sb.toString();
+	}
+}
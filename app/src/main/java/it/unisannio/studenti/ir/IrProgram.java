@@ -0,0 +1,51 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The IR of a whole program: the main function first, then one function per procedure.
+ */
+public class IrProgram {
+	private final List<IrFunction> functions = new ArrayList<>();
+
+	public List<IrFunction> getFunctions() {
+		return functions;
+	}
+
+	public IrFunction getMain() {
+		return functions.get(0);
+	}
+
+	public void add(IrFunction function) {
+		functions.add(function);
+	}
+
+	public int getBlockCount() {
+		int count = 0;
+		for (IrFunction function : functions) {
+			count += function.getBlocks().size();
+		}
+		return count;
+	}
+
+	public int getInstructionCount() {
+		int count = 0;
+		for (IrFunction function : functions) {
+			count += function.getInstructionCount();
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (IrFunction function : functions) {
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			sb.append(function);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,88 @@
+package it.unisannio.studenti.ir;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live virtual registers at the entry and exit of every block of a function,
+ * by the usual backward data-flow iteration. The operands of a PHI are live
+ * at the end of the matching predecessor, its result is defined at the start
+ * of its block.
+ */
+public class Liveness {
+	private final Map<BasicBlock, BitSet> liveIn = new HashMap<>();
+	private final Map<BasicBlock, BitSet> liveOut = new HashMap<>();
+
+	public Liveness(IrFunction function) {
+		List<BasicBlock> blocks = function.getBlocks();
+		Map<BasicBlock, BitSet> uses = new HashMap<>();
+		Map<BasicBlock, BitSet> defs = new HashMap<>();
+		for (BasicBlock block : blocks) {
+			BitSet use = new BitSet();
+			BitSet def = new BitSet();
+			for (IrInstruction instruction : block.getInstructions()) {
+				if (instruction.getOpcode() != Opcode.PHI) {
+					for (int i = 0; i < instruction.getOperandCount(); i++) {
+						Operand operand = instruction.getOperand(i);
+						if (operand.isRegister() && !def.get(operand.getRegister())) {
+							use.set(operand.getRegister());
+						}
+					}
+				}
+				if (instruction.hasResult()) {
+					def.set(instruction.getResult());
+				}
+			}
+			uses.put(block, use);
+			defs.put(block, def);
+			liveIn.put(block, new BitSet());
+			liveOut.put(block, new BitSet());
+		}
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int b = blocks.size() - 1; b >= 0; b--) {
+				BasicBlock block = blocks.get(b);
+				BitSet out = new BitSet();
+				for (BasicBlock successor : block.getSuccessors()) {
+					out.or(liveIn.get(successor));
+					addPhiOperands(successor, block, out);
+				}
+				BitSet in = (BitSet) out.clone();
+				in.andNot(defs.get(block));
+				in.or(uses.get(block));
+				if (!out.equals(liveOut.get(block)) || !in.equals(liveIn.get(block))) {
+					liveOut.put(block, out);
+					liveIn.put(block, in);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	private static void addPhiOperands(BasicBlock block, BasicBlock predecessor, BitSet live) {
+		int index = block.getPredecessors().indexOf(predecessor);
+		for (IrInstruction instruction : block.getInstructions()) {
+			if (instruction.getOpcode() != Opcode.PHI) {
+				break;
+			}
+			Operand operand = instruction.getOperand(index);
+			if (operand.isRegister()) {
+				live.set(operand.getRegister());
+			}
+		}
+	}
+
+	/** Registers live at the start of the block (PHI results excluded). */
+	public BitSet getLiveIn(BasicBlock block) {
+		return liveIn.get(block);
+	}
+
+	/** Registers live at the end of the block, PHI operands of the successors included. */
+	public BitSet getLiveOut(BasicBlock block) {
+		return liveOut.get(block);
+	}
+}
@@ -0,0 +1,99 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The natural loops of a function: an edge to a block that dominates its
+ * source is a back edge, and the loop of a header is made of the header and
+ * every block reaching one of its back edges without going through it.
+ * <p>
+ * The structured PL/0 statements only produce reducible graphs, so the
+ * loops are either disjoint or nested. Like {@link Dominators}, the nest
+ * describes the function as it was when the object was built.
+ */
+public class LoopNest {
+	/** A natural loop. */
+	public static final class Loop {
+		private final BasicBlock header;
+		private final Set<BasicBlock> blocks = new LinkedHashSet<>();
+
+		private Loop(BasicBlock header) {
+			this.header = header;
+		}
+
+		/** The only block of the loop entered from outside it. */
+		public BasicBlock getHeader() {
+			return header;
+		}
+
+		/** The blocks of the loop, header included, nested loops included. */
+		public Set<BasicBlock> getBlocks() {
+			return blocks;
+		}
+
+		public boolean contains(BasicBlock block) {
+			return blocks.contains(block);
+		}
+	}
+
+	private final List<Loop> loops = new ArrayList<>();
+	private final Map<BasicBlock, Integer> depth = new HashMap<>();
+
+	public LoopNest(Dominators dominators) {
+		Map<BasicBlock, Loop> byHeader = new LinkedHashMap<>();
+		for (BasicBlock block : dominators.getReversePostorder()) {
+			for (BasicBlock successor : block.getSuccessors()) {
+				if (dominators.dominates(successor, block)) {
+					Loop loop = byHeader.computeIfAbsent(successor, Loop::new);
+					collectBody(loop, block, dominators);
+				}
+			}
+		}
+		loops.addAll(byHeader.values());
+		loops.sort((a, b) -> Integer.compare(a.blocks.size(), b.blocks.size()));
+		for (Loop loop : loops) {
+			for (BasicBlock block : loop.blocks) {
+				depth.merge(block, 1, Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * Adds to the loop the blocks reaching {@code latch} backwards without going through the header.
+	 */
+	private static void collectBody(Loop loop, BasicBlock latch, Dominators dominators) {
+		loop.blocks.add(loop.header);
+		ArrayDeque<BasicBlock> work = new ArrayDeque<>();
+		if (loop.blocks.add(latch)) {
+			work.push(latch);
+		}
+		while (!work.isEmpty()) {
+			for (BasicBlock predecessor : work.pop().getPredecessors()) {
+				if (dominators.isReachable(predecessor) && loop.blocks.add(predecessor)) {
+					work.push(predecessor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the loops, every loop before the loops containing it
+	 */
+	public List<Loop> getLoops() {
+		return loops;
+	}
+
+	/**
+	 * @return the number of loops containing the block, 0 outside loops
+	 */
+	public int getDepth(BasicBlock block) {
+		return depth.getOrDefault(block, 0);
+	}
+}
@@ -0,0 +1,53 @@
+package it.unisannio.studenti.ir;
+
+/**
+ * Operations of the three-address IR. Unless noted, an instruction defines
+ * its result register from its operands without side effects.
+ */
+public enum Opcode {
+	COPY,   // result = a
+	ADD,    // result = a + b
+	SUB,    // result = a - b
+	MUL,    // result = a * b
+	DIV,    // result = a / b, truncating; traps if b is 0
+	NEG,    // result = -a
+	FRAME,  // result = frame pointer found `levels` static links up from the current frame
+	LOAD,   // result = variable, operand: the frame pointer for non-local variables
+	STORE,  // variable = a, second operand: the frame pointer for non-local variables
+	READ,   // result = next integer of the input, or a when the input is exhausted
+	WRITE,  // prints a
+	CALL,   // calls a procedure, operand: the static link, or none for the current frame
+	PHI,    // result = the operand of the predecessor control came from (SSA only)
+	JUMP,   // continues at the target block
+	BRANCH, // continues at the first target if `a relation b` (or `odd a`) holds, else at the second
+	RETURN; // leaves the procedure
+
+	public boolean isTerminator() {
+		return this == JUMP || this == BRANCH || this == RETURN;
+	}
+
+	/**
+	 * @return true if the instruction has an effect besides defining its result
+	 *         (memory, I/O, control flow or a possible trap)
+	 */
+	public boolean hasSideEffects() {
+		switch (this) {
+			case DIV:
+			case STORE:
+			case READ:
+			case WRITE:
+			case CALL:
+			case JUMP:
+			case BRANCH:
+			case RETURN:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+}
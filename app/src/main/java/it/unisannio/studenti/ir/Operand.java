@@ -0,0 +1,59 @@
+package it.unisannio.studenti.ir;
+
+/**
+ * Operand of an IR instruction: a virtual register or a 64-bit constant.
+ */
+public final class Operand {
+	private final boolean constant;
+	private final long value; // the constant, or the register number
+
+	private Operand(boolean constant, long value) {
+		this.constant = constant;
+		this.value = value;
+	}
+
+	public static Operand register(int register) {
+		return new Operand(false, register);
+	}
+
+	public static Operand constant(long value) {
+		return new Operand(true, value);
+	}
+
+	public boolean isConstant() {
+		return constant;
+	}
+
+	public boolean isRegister() {
+		return !constant;
+	}
+
+	/** The value of a constant. */
+	public long getValue() {
+		return value;
+	}
+
+	/** The number of a virtual register. */
+	public int getRegister() {
+		return (int) value;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Operand)) {
+			return false;
+		}
+		Operand other = (Operand) o;
+		return constant == other.constant && value == other.value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(value) * 2 + (constant ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return constant ? Long.toString(value) : "v" + value;
+	}
+}
@@ -0,0 +1,143 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Takes a function out of SSA form, replacing every PHI with copies so that
+ * the register allocator sees plain instructions.
+ * <p>
+ * A PHI {@code r = PHI(x1, ..., xn)} becomes a copy {@code r = xi} at the
+ * end of every predecessor i, before its terminator. This is only right
+ * when {@code r} is not live there (the copy would overwrite a value still
+ * needed, the "lost copy" and "swap" problems); otherwise each predecessor
+ * copies its operand to a new register {@code t}, and {@code r = t} is put
+ * at the start of the block.
+ * <p>
+ * Finally, a copy {@code y = x} is merged into the instruction defining
+ * {@code x} when that instruction is in the same block, {@code x} has no
+ * other use and {@code y} is not accessed in between: {@code x = a + 1;
+ * y = x} becomes {@code y = a + 1}, which saves a move per loop iteration
+ * for the usual loop variables.
+ */
+public class PhiElimination {
+	private int copyCount = 0;
+
+	/** The number of copies inserted, net of the merged ones. */
+	public int getCopyCount() {
+		return copyCount;
+	}
+
+	public void apply(IrProgram program) {
+		for (IrFunction function : program.getFunctions()) {
+			apply(function);
+		}
+	}
+
+	public void apply(IrFunction function) {
+		Liveness liveness = new Liveness(function);
+		for (BasicBlock block : function.getBlocks()) {
+			List<IrInstruction> instructions = block.getInstructions();
+			List<IrInstruction> entryCopies = new ArrayList<>();
+			while (!instructions.isEmpty() && instructions.get(0).getOpcode() == Opcode.PHI) {
+				IrInstruction phi = instructions.remove(0);
+				int result = phi.getResult();
+				if (isLiveAtCopies(block, result, liveness)) {
+					int temporary = function.newRegister();
+					entryCopies.add(IrInstruction.copy(result, Operand.register(temporary)));
+					result = temporary;
+					copyCount++;
+				}
+				List<BasicBlock> predecessors = block.getPredecessors();
+				for (int i = 0; i < predecessors.size(); i++) {
+					insertBeforeTerminator(predecessors.get(i), IrInstruction.copy(result, phi.getOperand(i)));
+					copyCount++;
+				}
+			}
+			instructions.addAll(0, entryCopies);
+		}
+		int[] uses = countUses(function);
+		for (BasicBlock block : function.getBlocks()) {
+			mergeCopies(block, uses);
+		}
+	}
+
+	/**
+	 * @return true if the register is live where the copies of the PHIs of the block go
+	 */
+	private static boolean isLiveAtCopies(BasicBlock block, int register, Liveness liveness) {
+		for (BasicBlock predecessor : block.getPredecessors()) {
+			if (liveness.getLiveOut(predecessor).get(register)) {
+				return true;
+			}
+			IrInstruction terminator = predecessor.getTerminator();
+			for (int i = 0; i < terminator.getOperandCount(); i++) {
+				if (terminator.getOperand(i).isRegister() && terminator.getOperand(i).getRegister() == register) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static void insertBeforeTerminator(BasicBlock block, IrInstruction instruction) {
+		List<IrInstruction> instructions = block.getInstructions();
+		instructions.add(instructions.size() - 1, instruction);
+	}
+
+	private void mergeCopies(BasicBlock block, int[] uses) {
+		List<IrInstruction> instructions = block.getInstructions();
+		for (int i = 0; i < instructions.size(); i++) {
+			IrInstruction copy = instructions.get(i);
+			if (copy.getOpcode() != Opcode.COPY || !copy.getOperand(0).isRegister()) {
+				continue;
+			}
+			int source = copy.getOperand(0).getRegister();
+			int target = copy.getResult();
+			if (uses[source] != 1 || source == target) {
+				continue;
+			}
+			for (int j = i - 1; j >= 0; j--) {
+				IrInstruction instruction = instructions.get(j);
+				if (instruction.getResult() == source) {
+					instruction.setResult(target);
+					instructions.remove(i);
+					i--;
+					copyCount--;
+					break;
+				}
+				if (accesses(instruction, target) || accesses(instruction, source)) {
+					break;
+				}
+			}
+		}
+	}
+
+	private static boolean accesses(IrInstruction instruction, int register) {
+		if (instruction.getResult() == register) {
+			return true;
+		}
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			Operand operand = instruction.getOperand(i);
+			if (operand.isRegister() && operand.getRegister() == register) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] countUses(IrFunction function) {
+		int[] uses = new int[function.getRegisterCount()];
+		for (BasicBlock block : function.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					Operand operand = instruction.getOperand(i);
+					if (operand.isRegister()) {
+						uses[operand.getRegister()]++;
+					}
+				}
+			}
+		}
+		return uses;
+	}
+}
@@ -0,0 +1,256 @@
+package it.unisannio.studenti.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Puts the functions of a program in SSA form by promoting their local
+ * variables to virtual registers (Cytron et al.).
+ * <p>
+ * Every local variable is promoted: its LOAD and STORE instructions become
+ * copies of the current value and disappear, with PHIs at the join points
+ * where different values meet. PHIs are only placed for the variables read
+ * in a block before being assigned there (semi-pruned form), since the
+ * others cannot be live across blocks. A variable read before any
+ * assignment is 0.
+ * <p>
+ * A local that a nested procedure accesses through the static link
+ * (captured) keeps its memory slot, which only matters while a nested
+ * procedure runs: its current value is stored before every call to a
+ * nested procedure, unless it is still the value loaded after the previous
+ * one in the same block, and loaded again after the call.
+ * <p>
+ * Non-local variables stay in memory.
+ */
+public class SsaBuilder {
+	private int promotedCount = 0;
+	private int phiCount = 0;
+
+	/** The number of local variables promoted to registers. */
+	public int getPromotedCount() {
+		return promotedCount;
+	}
+
+	public int getPhiCount() {
+		return phiCount;
+	}
+
+	public void apply(IrProgram program) {
+		Map<IrFunction, Set<Integer>> captured = capturedOffsets(program);
+		for (IrFunction function : program.getFunctions()) {
+			Set<Integer> offsets = captured.get(function);
+			apply(function, offsets != null ? offsets : new HashSet<>());
+		}
+	}
+
+	/**
+	 * @return for every function, the frame offsets of its variables accessed by nested procedures
+	 */
+	private static Map<IrFunction, Set<Integer>> capturedOffsets(IrProgram program) {
+		Map<IrFunction, Set<Integer>> captured = new HashMap<>();
+		for (IrFunction function : program.getFunctions()) {
+			for (BasicBlock block : function.getBlocks()) {
+				for (IrInstruction instruction : block.getInstructions()) {
+					Variable variable = instruction.getVariable();
+					if (variable == null || variable.isLocal()) {
+						continue;
+					}
+					IrFunction owner = function;
+					for (int i = 0; i < variable.getLevelDelta(); i++) {
+						owner = owner.getParent();
+					}
+					captured.computeIfAbsent(owner, f -> new HashSet<>()).add(variable.getOffset());
+				}
+			}
+		}
+		return captured;
+	}
+
+	private void apply(IrFunction function, Set<Integer> captured) {
+		function.removeUnreachableBlocks();
+
+		// Number the promotable variables
+		Map<Variable, Integer> index = new HashMap<>();
+		List<Variable> variables = new ArrayList<>();
+		BitSet inFrame = new BitSet();
+		for (BasicBlock block : function.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				Variable variable = instruction.getVariable();
+				if (variable != null && variable.isLocal() && !index.containsKey(variable)) {
+					if (captured.contains(variable.getOffset())) {
+						inFrame.set(variables.size());
+					}
+					index.put(variable, variables.size());
+					variables.add(variable);
+				}
+			}
+		}
+		if (index.isEmpty()) {
+			return;
+		}
+		promotedCount += index.size();
+
+		// Find the blocks assigning them and those live across blocks; a call
+		// to a nested procedure reads and assigns the captured ones
+		List<Set<BasicBlock>> assigningBlocks = new ArrayList<>();
+		for (int v = 0; v < variables.size(); v++) {
+			assigningBlocks.add(new HashSet<>());
+		}
+		BitSet global = new BitSet();
+		for (BasicBlock block : function.getBlocks()) {
+			BitSet assigned = new BitSet();
+			for (IrInstruction instruction : block.getInstructions()) {
+				if (instruction.getOpcode() == Opcode.CALL && instruction.getOperandCount() == 0) {
+					for (int v = inFrame.nextSetBit(0); v >= 0; v = inFrame.nextSetBit(v + 1)) {
+						if (!assigned.get(v)) {
+							global.set(v);
+						}
+						assigned.set(v);
+						assigningBlocks.get(v).add(block);
+					}
+				}
+				Variable variable = instruction.getVariable();
+				if (variable == null || !variable.isLocal()) {
+					continue;
+				}
+				int v = index.get(variable);
+				if (instruction.getOpcode() == Opcode.STORE) {
+					assigned.set(v);
+					assigningBlocks.get(v).add(block);
+				} else if (!assigned.get(v)) {
+					global.set(v);
+				}
+			}
+		}
+
+		Dominators dominators = new Dominators(function);
+		Map<IrInstruction, Integer> phiVariables = new IdentityHashMap<>();
+		placePhis(function, dominators, assigningBlocks, global, phiVariables);
+		rename(function, dominators, index, phiVariables, variables.toArray(new Variable[0]), inFrame);
+	}
+
+	/**
+	 * Inserts a PHI for every global variable at the iterated dominance frontier of its assignments.
+	 */
+	private void placePhis(IrFunction function, Dominators dominators, List<Set<BasicBlock>> assigningBlocks,
+			BitSet global, Map<IrInstruction, Integer> phiVariables) {
+		for (int v = global.nextSetBit(0); v >= 0; v = global.nextSetBit(v + 1)) {
+			Set<BasicBlock> hasPhi = new HashSet<>();
+			ArrayDeque<BasicBlock> work = new ArrayDeque<>(assigningBlocks.get(v));
+			while (!work.isEmpty()) {
+				for (BasicBlock frontier : dominators.getDominanceFrontier(work.pop())) {
+					if (!hasPhi.add(frontier)) {
+						continue;
+					}
+					Operand[] operands = new Operand[frontier.getPredecessors().size()];
+					IrInstruction phi = IrInstruction.phi(function.newRegister(), operands);
+					frontier.getInstructions().add(0, phi);
+					phiVariables.put(phi, v);
+					phiCount++;
+					if (!assigningBlocks.get(v).contains(frontier)) {
+						work.push(frontier);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walks the dominator tree keeping the current value of every variable:
+	 * loads become copies of it, stores change it and are removed, and the
+	 * PHIs of the successors get it as the operand of the edge. The captured
+	 * variables are written to their slot and read back around the calls to
+	 * nested procedures.
+	 */
+	private static void rename(IrFunction function, Dominators dominators, Map<Variable, Integer> index,
+			Map<IrInstruction, Integer> phiVariables, Variable[] variables, BitSet captured) {
+		Operand[] current = new Operand[index.size()];
+		Arrays.fill(current, Operand.constant(0));
+
+		ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+		ArrayDeque<Integer> nextChild = new ArrayDeque<>();
+		ArrayDeque<Operand[]> saved = new ArrayDeque<>();
+		blocks.push(function.getEntry());
+		nextChild.push(-1);
+		while (!blocks.isEmpty()) {
+			BasicBlock block = blocks.peek();
+			int next = nextChild.pop();
+			if (next < 0) {
+				saved.push(current.clone());
+				renameBlock(function, block, index, phiVariables, current, variables, captured);
+				next = 0;
+			}
+			List<BasicBlock> children = dominators.getChildren(block);
+			if (next < children.size()) {
+				nextChild.push(next + 1);
+				blocks.push(children.get(next));
+				nextChild.push(-1);
+			} else {
+				blocks.pop();
+				Operand[] values = saved.pop();
+				System.arraycopy(values, 0, current, 0, current.length);
+			}
+		}
+	}
+
+	private static void renameBlock(IrFunction function, BasicBlock block, Map<Variable, Integer> index,
+			Map<IrInstruction, Integer> phiVariables, Operand[] current, Variable[] variables, BitSet captured) {
+		List<IrInstruction> instructions = block.getInstructions();
+		List<IrInstruction> renamed = new ArrayList<>(instructions.size());
+		BitSet inSlot = new BitSet(); // Captured variables whose slot holds the current value
+		for (IrInstruction instruction : instructions) {
+			Integer v = instruction.getOpcode() == Opcode.PHI
+					? phiVariables.get(instruction)
+					: instruction.getVariable() != null ? index.get(instruction.getVariable()) : null;
+			if (instruction.getOpcode() == Opcode.CALL && instruction.getOperandCount() == 0) {
+				// A nested procedure (static link: this frame) may access the captured variables
+				for (int c = captured.nextSetBit(0); c >= 0; c = captured.nextSetBit(c + 1)) {
+					if (!inSlot.get(c)) {
+						renamed.add(IrInstruction.store(variables[c], current[c], null));
+					}
+				}
+				renamed.add(instruction);
+				for (int c = captured.nextSetBit(0); c >= 0; c = captured.nextSetBit(c + 1)) {
+					int value = function.newRegister();
+					renamed.add(IrInstruction.load(value, variables[c], null));
+					current[c] = Operand.register(value);
+					inSlot.set(c);
+				}
+			} else if (v == null) {
+				renamed.add(instruction);
+			} else if (instruction.getOpcode() == Opcode.PHI) {
+				current[v] = Operand.register(instruction.getResult());
+				renamed.add(instruction);
+			} else if (instruction.getOpcode() == Opcode.LOAD) {
+				instruction.becomeCopy(current[v]);
+				renamed.add(instruction);
+			} else { // STORE
+				current[v] = instruction.getOperand(0);
+				inSlot.clear(v);
+			}
+		}
+		instructions.clear();
+		instructions.addAll(renamed);
+
+		for (BasicBlock successor : block.getSuccessors()) {
+			int edge = successor.getPredecessors().indexOf(block);
+			for (IrInstruction instruction : successor.getInstructions()) {
+				if (instruction.getOpcode() != Opcode.PHI) {
+					break;
+				}
+				Integer v = phiVariables.get(instruction);
+				if (v != null) {
+					instruction.setOperand(edge, current[v]);
+				}
+			}
+		}
+	}
+}
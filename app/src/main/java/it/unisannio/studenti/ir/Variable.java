@@ -0,0 +1,60 @@
+package it.unisannio.studenti.ir;
+
+import it.unisannio.studenti.symbolTable.Slot;
+
+/**
+ * A PL/0 variable as addressed from a function: a frame offset in the frame
+ * found {@code levelDelta} static links up. Two variables are the same
+ * storage exactly when both coordinates match.
+ */
+public final class Variable {
+	private final String name;
+	private final int levelDelta;
+	private final int offset;
+
+	public Variable(String name, int levelDelta, int offset) {
+		this.name = name;
+		this.levelDelta = levelDelta;
+		this.offset = offset;
+	}
+
+	public static Variable of(Slot slot) {
+		return new Variable(slot.getSymbol().getName(), slot.getLevelDelta(), slot.getOffset());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getLevelDelta() {
+		return levelDelta;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	/** @return true for a variable of the function's own frame */
+	public boolean isLocal() {
+		return levelDelta == 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Variable)) {
+			return false;
+		}
+		Variable other = (Variable) o;
+		return levelDelta == other.levelDelta && offset == other.offset;
+	}
+
+	@Override
+	public int hashCode() {
+		return levelDelta * 31 + offset;
+	}
+
+	@Override
+	public String toString() {
+		return levelDelta == 0 ? name : name + "^" + levelDelta;
+	}
+}
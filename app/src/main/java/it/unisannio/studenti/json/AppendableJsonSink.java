@@ -0,0 +1,53 @@
+package it.unisannio.studenti.json;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * {@link JsonSink} writing to an {@link Appendable}: a {@link StringBuilder},
+ * a (buffered) {@link java.io.Writer}, a {@link java.io.PrintStream}, ...
+ */
+public class AppendableJsonSink implements JsonSink {
+	private static final String SPACES = "                                ";
+
+	private final Appendable out;
+
+	public AppendableJsonSink(Appendable out) {
+		this.out = out;
+	}
+
+	@Override
+	public void write(String text) throws IOException {
+		out.append(text);
+	}
+
+	@Override
+	public void write(char c) throws IOException {
+		out.append(c);
+	}
+
+	@Override
+	public void write(long value) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+		} else {
+			out.append(Long.toString(value));
+		}
+	}
+
+	@Override
+	public void writeSpaces(int count) throws IOException {
+		while (count > 0) {
+			int chunk = Math.min(count, SPACES.length());
+			out.append(SPACES, 0, chunk);
+			count -= chunk;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (out instanceof Flushable) {
+			((Flushable) out).flush();
+		}
+	}
+}
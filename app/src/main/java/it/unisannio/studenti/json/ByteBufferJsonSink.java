@@ -0,0 +1,100 @@
+package it.unisannio.studenti.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link JsonSink} encoding UTF-8 straight into a direct {@link ByteBuffer}
+ * that is drained to a channel whenever it fills up. No intermediate
+ * String or char buffer is allocated, whatever the size of the output.
+ */
+public class ByteBufferJsonSink implements JsonSink {
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final byte[] digits = new byte[20];
+	private long bytesWritten = 0;
+
+	public ByteBufferJsonSink(WritableByteChannel channel) {
+		this(channel, DEFAULT_CAPACITY);
+	}
+
+	public ByteBufferJsonSink(WritableByteChannel channel, int capacity) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(capacity);
+	}
+
+	/**
+	 * @return the number of bytes written to the channel so far (after a {@link #flush()})
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	@Override
+	public void write(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			write(text.charAt(i));
+		}
+	}
+
+	@Override
+	public void write(char c) throws IOException {
+		if (c < 0x80) {
+			put((byte) c);
+		} else if (c < 0x800) {
+			put((byte) (0xC0 | (c >> 6)));
+			put((byte) (0x80 | (c & 0x3F)));
+		} else {
+			// JSON produced by the compiler is ASCII; other BMP characters are encoded on 3 bytes
+			put((byte) (0xE0 | (c >> 12)));
+			put((byte) (0x80 | ((c >> 6) & 0x3F)));
+			put((byte) (0x80 | (c & 0x3F)));
+		}
+	}
+
+	@Override
+	public void write(long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			write(Long.toString(value));
+			return;
+		}
+		if (value < 0) {
+			put((byte) '-');
+			value = -value;
+		}
+		int length = 0;
+		do {
+			digits[length++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+		while (length > 0) {
+			put(digits[--length]);
+		}
+	}
+
+	@Override
+	public void writeSpaces(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			put((byte) ' ');
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			bytesWritten += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void put(byte b) throws IOException {
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put(b);
+	}
+}
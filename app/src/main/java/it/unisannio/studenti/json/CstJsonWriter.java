@@ -0,0 +1,152 @@
+package it.unisannio.studenti.json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Streams the JSON representation of a parse tree (the {@code -cst.json} artifact)
+ * to a writer while walking the tree.
+ * <p>
+ * The walk uses an explicit stack instead of recursion and nothing is built in
+ * memory besides the stack itself (one entry per tree level) and the shared
+ * indentation buffer, so arbitrarily large and deep trees can be written.
+ */
+public class CstJsonWriter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** A rule node being written and the index of its next child. */
+	private static class Frame {
+		final ParseTree node;
+		final int indent;
+		int nextChild = 0;
+
+		Frame(ParseTree node, int indent) {
+			this.node = node;
+			this.indent = indent;
+		}
+	}
+
+	private final Writer out;
+	private final String[] ruleNames;
+	private char[] spaces = new char[64];
+
+	public CstJsonWriter(Writer out, String[] ruleNames) {
+		this.out = out;
+		this.ruleNames = ruleNames;
+		Arrays.fill(spaces, ' ');
+	}
+
+	/**
+	 * Writes the tree to a file through a buffered file channel.
+	 * @return the number of bytes written
+	 */
+	public static long write(ParseTree tree, String[] ruleNames, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			new CstJsonWriter(writer, ruleNames).write(tree);
+			writer.flush();
+			return channel.size();
+		}
+	}
+
+	public void write(ParseTree root) throws IOException {
+		ArrayDeque<Frame> stack = new ArrayDeque<>();
+		if (!open(root, 0, stack)) {
+			return;
+		}
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			if (frame.nextChild < frame.node.getChildCount()) {
+				ParseTree child = frame.node.getChild(frame.nextChild++);
+				if (open(child, frame.indent + 2, stack)) {
+					continue; // A rule: its children are written first
+				}
+			} else {
+				stack.pop();
+				indent(frame.indent);
+				out.write("  ]\n");
+				indent(frame.indent);
+				out.write('}');
+			}
+			// A node is complete: separate it from its next sibling
+			Frame parent = stack.peek();
+			if (parent != null) {
+				out.write(parent.nextChild < parent.node.getChildCount() ? ",\n" : "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a terminal completely, or the opening of a rule node (pushing it on the stack).
+	 * @return true if a rule node was opened
+	 */
+	private boolean open(ParseTree node, int indent, ArrayDeque<Frame> stack) throws IOException {
+		if (node instanceof TerminalNode) {
+			indent(indent);
+			out.write("{\n");
+			indent(indent);
+			out.write("  \"type\": \"terminal\",\n");
+			indent(indent);
+			out.write("  \"text\": \"");
+			writeEscaped(node.getText());
+			out.write("\"\n");
+			indent(indent);
+			out.write('}');
+			return false;
+		} else if (node instanceof RuleContext) {
+			String ruleName = ruleNames[((RuleContext) node).getRuleIndex()];
+			indent(indent);
+			out.write("{\n");
+			indent(indent);
+			out.write("  \"type\": \"rule\",\n");
+			indent(indent);
+			out.write("  \"name\": \"");
+			out.write(ruleName);
+			out.write("\",\n");
+			indent(indent);
+			out.write("  \"children\": [\n");
+			stack.push(new Frame(node, indent));
+			return true;
+		}
+		return false;
+	}
+
+	private void indent(int level) throws IOException {
+		int count = level * 2;
+		if (count > spaces.length) {
+			spaces = new char[Math.max(count, spaces.length * 2)];
+			Arrays.fill(spaces, ' ');
+		}
+		out.write(spaces, 0, count);
+	}
+
+	/**
+	 * Escapes special characters for JSON.
+	 */
+	private void writeEscaped(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '\\': out.write("\\\\"); break;
+				case '"': out.write("\\\""); break;
+				case '\n': out.write("\\n"); break;
+				case '\r': out.write("\\r"); break;
+				case '\t': out.write("\\t"); break;
+				default: out.write(c);
+			}
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package it.unisannio.studenti.json;
+
+import java.io.IOException;
+
+/**
+ * Destination of streamed JSON text. Implementations decide where the
+ * characters go (a {@link java.io.Writer} or any other {@link Appendable},
+ * a direct {@link java.nio.ByteBuffer} drained to a channel, ...).
+ */
+public interface JsonSink {
+
+	void write(String text) throws IOException;
+
+	void write(char c) throws IOException;
+
+	/**
+	 * Writes the decimal representation of a number.
+	 */
+	void write(long value) throws IOException;
+
+	/**
+	 * Writes {@code count} spaces.
+	 */
+	void writeSpaces(int count) throws IOException;
+
+	/**
+	 * Pushes any buffered text to the underlying destination.
+	 */
+	void flush() throws IOException;
+}
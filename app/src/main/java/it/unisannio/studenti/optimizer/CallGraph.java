@@ -0,0 +1,116 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unisannio.studenti.ast.constructs.*;
+import it.unisannio.studenti.symbolTable.Symbol;
+
+/**
+ * The calls between the procedures of a resolved program: for every
+ * procedure, the procedures its body calls and how many call statements
+ * name it. The main program is represented by {@code null}.
+ * <p>
+ * Like the AST it is built from, the graph is not updated by the passes
+ * transforming the program; they build a new one when they need it.
+ */
+public class CallGraph {
+	private final Map<Symbol, ProcedureDeclaration> declarations = new HashMap<>();
+	private final Map<Symbol, Set<Symbol>> callees = new HashMap<>();
+	private final Map<Symbol, Integer> callCounts = new HashMap<>();
+	private final Map<Symbol, Boolean> recursive = new HashMap<>();
+
+	public CallGraph(Program program) {
+		collect(program.getBlock(), null);
+	}
+
+	private void collect(Block block, Symbol owner) {
+		for (ProcedureDeclaration proc : block.getProcs()) {
+			declarations.put(proc.getSymbol(), proc);
+			collect(proc.getBlock(), proc.getSymbol());
+		}
+		Set<Symbol> called = callees.computeIfAbsent(owner, s -> new LinkedHashSet<>());
+		List<CallStatement> calls = new ArrayList<>();
+		collectCalls(block.getStatement(), calls);
+		for (CallStatement call : calls) {
+			called.add(call.getSymbol());
+			callCounts.merge(call.getSymbol(), 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Adds to {@code calls} the call statements of a statement, in source order.
+	 */
+	static void collectCalls(Statement stmt, List<CallStatement> calls) {
+		if (stmt instanceof CallStatement) {
+			calls.add((CallStatement) stmt);
+		} else if (stmt instanceof BeginStatement) {
+			for (Statement s : ((BeginStatement) stmt).getStatements()) {
+				collectCalls(s, calls);
+			}
+		} else if (stmt instanceof IfStatement) {
+			collectCalls(((IfStatement) stmt).getThenStatement(), calls);
+			if (((IfStatement) stmt).getElseStatement() != null) {
+				collectCalls(((IfStatement) stmt).getElseStatement(), calls);
+			}
+		} else if (stmt instanceof WhileStatement) {
+			collectCalls(((WhileStatement) stmt).getDoStatement(), calls);
+		}
+	}
+
+	/**
+	 * @return the declaration of a procedure, null for the main program
+	 */
+	public ProcedureDeclaration getDeclaration(Symbol procedure) {
+		return procedure != null ? declarations.get(procedure) : null;
+	}
+
+	/**
+	 * @return the procedures called by the body of {@code procedure}, null for the main program
+	 */
+	public Set<Symbol> getCallees(Symbol procedure) {
+		return callees.get(procedure);
+	}
+
+	/**
+	 * @return the number of call statements naming the procedure
+	 */
+	public int getCallCount(Symbol procedure) {
+		return callCounts.getOrDefault(procedure, 0);
+	}
+
+	/**
+	 * @return true if the procedure can reach itself through calls
+	 */
+	public boolean isRecursive(Symbol procedure) {
+		return recursive.computeIfAbsent(procedure, p -> reachableFrom(p).contains(p));
+	}
+
+	/**
+	 * @return the procedures the main program can reach through calls
+	 */
+	public Set<Symbol> getReachable() {
+		return reachableFrom(null);
+	}
+
+	/**
+	 * @return the procedures reached by at least one call from {@code procedure}
+	 */
+	private Set<Symbol> reachableFrom(Symbol procedure) {
+		Set<Symbol> visited = new HashSet<>();
+		ArrayDeque<Symbol> work = new ArrayDeque<>(callees.get(procedure));
+		while (!work.isEmpty()) {
+			Symbol callee = work.pop();
+			if (visited.add(callee)) {
+				work.addAll(callees.get(callee));
+			}
+		}
+		return visited;
+	}
+}
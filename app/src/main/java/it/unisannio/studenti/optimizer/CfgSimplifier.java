@@ -0,0 +1,104 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.List;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Opcode;
+
+/**
+ * Cleans up the control-flow graph left by the other passes, which remove
+ * instructions and turn branches into jumps:
+ * <ul>
+ * <li>a branch with the same block as both targets becomes a jump;</li>
+ * <li>a block reached only by a jump from its predecessor is appended to it
+ *     (its PHIs, with a single operand, become copies);</li>
+ * <li>a block holding just a jump is bypassed by its predecessors, unless
+ *     the target has PHIs (the edges could not be told apart).</li>
+ * </ul>
+ */
+public class CfgSimplifier {
+	private int blockCount = 0;
+
+	/** The number of blocks removed. */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	public void apply(IrFunction function) {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			List<BasicBlock> blocks = function.getBlocks();
+			for (int b = 0; b < blocks.size(); b++) {
+				BasicBlock block = blocks.get(b);
+				IrInstruction terminator = block.getTerminator();
+				if (terminator.getOpcode() == Opcode.BRANCH && terminator.getTarget(0) == terminator.getTarget(1)) {
+					terminator.becomeJump(terminator.getTarget(0));
+				}
+				while (mergeSuccessor(function, block)) {
+					changed = true;
+				}
+				if (b > 0 && bypass(function, block)) {
+					changed = true;
+					b--;
+				}
+			}
+		}
+	}
+
+	private boolean mergeSuccessor(IrFunction function, BasicBlock block) {
+		IrInstruction terminator = block.getTerminator();
+		if (terminator.getOpcode() != Opcode.JUMP) {
+			return false;
+		}
+		BasicBlock successor = terminator.getTarget(0);
+		if (successor == block || successor == function.getEntry() || successor.getPredecessors().size() != 1) {
+			return false;
+		}
+		List<IrInstruction> instructions = block.getInstructions();
+		instructions.remove(instructions.size() - 1);
+		for (IrInstruction instruction : successor.getInstructions()) {
+			if (instruction.getOpcode() == Opcode.PHI) {
+				instruction.becomeCopy(instruction.getOperand(0));
+			}
+			instructions.add(instruction);
+		}
+		for (BasicBlock next : successor.getSuccessors()) {
+			List<BasicBlock> predecessors = next.getPredecessors();
+			predecessors.set(predecessors.indexOf(successor), block);
+		}
+		function.getBlocks().remove(successor);
+		blockCount++;
+		return true;
+	}
+
+	private boolean bypass(IrFunction function, BasicBlock block) {
+		if (block.getInstructions().size() != 1 || block.getTerminator().getOpcode() != Opcode.JUMP) {
+			return false;
+		}
+		BasicBlock target = block.getTerminator().getTarget(0);
+		if (target == block || !target.getInstructions().isEmpty() && target.getInstructions().get(0).getOpcode() == Opcode.PHI) {
+			return false;
+		}
+		target.getPredecessors().remove(block);
+		for (BasicBlock predecessor : block.getPredecessors()) {
+			IrInstruction terminator = predecessor.getTerminator();
+			for (int i = 0; i < terminator.getTargetCount(); i++) {
+				if (terminator.getTarget(i) == block) {
+					terminator.setTarget(i, target);
+				}
+			}
+			if (terminator.getOpcode() == Opcode.BRANCH && terminator.getTarget(0) == terminator.getTarget(1)) {
+				terminator.becomeJump(target);
+			}
+			if (!target.getPredecessors().contains(predecessor)) {
+				target.getPredecessors().add(predecessor);
+			}
+		}
+		function.getBlocks().remove(block);
+		blockCount++;
+		return true;
+	}
+}
@@ -0,0 +1,354 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unisannio.studenti.ast.ASTVisitor;
+import it.unisannio.studenti.ast.constructs.*;
+
+/**
+ * AST pass evaluating at compile time everything that does not depend on
+ * run-time values:
+ * <ul>
+ * <li>uses of CONST symbols become number literals;</li>
+ * <li>unary and binary expressions over literals are folded, with the 64-bit
+ *     semantics of the generated code (division truncates toward zero; a
+ *     division by zero is left to fail at run time); results that do not fit
+ *     in an int literal are not folded;</li>
+ * <li>algebraic identities are simplified: {@code x+0}, {@code x-0},
+ *     {@code x*1}, {@code x/1} become {@code x} and {@code x*0} becomes 0;
+ *     the only side effect of a PL/0 expression is the trap of a division
+ *     (by zero, or of the minimum by -1), so {@code x*0} is kept when
+ *     {@code x} contains a division that may trap;</li>
+ * <li>IF statements with a constant condition are replaced by the taken
+ *     branch, WHILE statements with a false condition are removed, and the
+ *     statements following one that never completes (a WHILE with a true
+ *     condition) are unreachable and removed.</li>
+ * </ul>
+ * The resolved AST is not modified: changed subtrees are rebuilt, unchanged
+ * ones are shared with the input.
+ */
+public class ConstantFolder implements ASTVisitor<ASTNode> {
+	private int foldCount = 0;
+
+	public static Program fold(Program program) {
+		return new ConstantFolder().apply(program);
+	}
+
+	public Program apply(Program program) {
+		return (Program) program.accept(this);
+	}
+
+	/**
+	 * @return the number of simplifications performed
+	 */
+	public int getFoldCount() {
+		return foldCount;
+	}
+
+	/**
+	 * @return the value of a condition over literals, or null if it depends on run-time values
+	 */
+	public static Boolean evaluate(Condition cond) {
+		if (cond instanceof OddCondition) {
+			Expression e = ((OddCondition) cond).getExpression();
+			if (e instanceof NumberLiteral) {
+				return (((NumberLiteral) e).getValue() & 1) != 0;
+			}
+		} else if (cond instanceof RelationalCondition) {
+			RelationalCondition rel = (RelationalCondition) cond;
+			if (rel.getLeft() instanceof NumberLiteral && rel.getRight() instanceof NumberLiteral) {
+				return compare(rel.getOperator(), ((NumberLiteral) rel.getLeft()).getValue(),
+						((NumberLiteral) rel.getRight()).getValue());
+			}
+		}
+		return null;
+	}
+
+	public static boolean compare(String operator, long left, long right) {
+		switch (operator) {
+			case "=": return left == right;
+			case "#": return left != right;
+			case "<": return left < right;
+			case "<=": return left <= right;
+			case ">": return left > right;
+			case ">=": return left >= right;
+			default: throw new IllegalArgumentException("Unknown relation: " + operator);
+		}
+	}
+
+	// --- Declarations ---
+
+	@Override
+	public ASTNode visit(Program program) {
+		Block block = (Block) program.getBlock().accept(this);
+		return block == program.getBlock() ? program : new Program(block);
+	}
+
+	@Override
+	public ASTNode visit(Block block) {
+		boolean changed = false;
+		List<ProcedureDeclaration> procs = new ArrayList<>(block.getProcs().size());
+		for (ProcedureDeclaration proc : block.getProcs()) {
+			ProcedureDeclaration folded = (ProcedureDeclaration) proc.accept(this);
+			changed |= folded != proc;
+			procs.add(folded);
+		}
+		Statement statement = (Statement) block.getStatement().accept(this);
+		if (!changed && statement == block.getStatement()) {
+			return block;
+		}
+		return new Block(block.getConsts(), block.getVars(), procs, statement,
+				block.getNestingLevel(), block.getLocalsSize());
+	}
+
+	@Override
+	public ASTNode visit(ConstDeclaration decl) {
+		return decl;
+	}
+
+	@Override
+	public ASTNode visit(VarDeclaration decl) {
+		return decl;
+	}
+
+	@Override
+	public ASTNode visit(ProcedureDeclaration decl) {
+		Block block = (Block) decl.getBlock().accept(this);
+		return block == decl.getBlock() ? decl : new ProcedureDeclaration(decl.getName(), block, decl.getSymbol());
+	}
+
+	// --- Statements ---
+
+	@Override
+	public ASTNode visit(AssignmentStatement stmt) {
+		Expression expr = (Expression) stmt.getExpression().accept(this);
+		return expr == stmt.getExpression() ? stmt : new AssignmentStatement(stmt.getVariable(), expr, stmt.getSlot());
+	}
+
+	@Override
+	public ASTNode visit(CallStatement stmt) {
+		return stmt;
+	}
+
+	@Override
+	public ASTNode visit(BeginStatement stmt) {
+		boolean changed = false;
+		List<Statement> statements = new ArrayList<>(stmt.getStatements().size());
+		List<Statement> original = stmt.getStatements();
+		for (int i = 0; i < original.size(); i++) {
+			Statement s = original.get(i);
+			Statement folded = (Statement) s.accept(this);
+			changed |= folded != s;
+			if (folded instanceof SkipStatement) {
+				changed = true; // Empty statements generate no code, drop them
+			} else {
+				statements.add(folded);
+			}
+			if (i < original.size() - 1 && !completes(folded)) {
+				foldCount++;
+				changed = true;
+				break;
+			}
+		}
+		if (!changed) {
+			return stmt;
+		}
+		if (statements.isEmpty()) {
+			return new SkipStatement();
+		}
+		return statements.size() == 1 ? statements.get(0) : new BeginStatement(statements);
+	}
+
+	/**
+	 * @return false if a folded statement certainly never completes
+	 */
+	private static boolean completes(Statement stmt) {
+		if (stmt instanceof WhileStatement) {
+			return !Boolean.TRUE.equals(evaluate(((WhileStatement) stmt).getCondition()));
+		} else if (stmt instanceof BeginStatement) {
+			List<Statement> statements = ((BeginStatement) stmt).getStatements();
+			return statements.isEmpty() || completes(statements.get(statements.size() - 1));
+		} else if (stmt instanceof IfStatement) {
+			IfStatement ifStmt = (IfStatement) stmt;
+			return ifStmt.getElseStatement() == null || completes(ifStmt.getThenStatement())
+					|| completes(ifStmt.getElseStatement());
+		}
+		return true;
+	}
+
+	@Override
+	public ASTNode visit(IfStatement stmt) {
+		Condition cond = (Condition) stmt.getCondition().accept(this);
+		Boolean value = evaluate(cond);
+		if (value != null) {
+			foldCount++;
+			Statement taken = value ? stmt.getThenStatement() : stmt.getElseStatement();
+			return taken != null ? (Statement) taken.accept(this) : new SkipStatement();
+		}
+		Statement thenStmt = (Statement) stmt.getThenStatement().accept(this);
+		Statement elseStmt = stmt.getElseStatement() != null ? (Statement) stmt.getElseStatement().accept(this) : null;
+		if (elseStmt instanceof SkipStatement) {
+			elseStmt = null;
+		}
+		if (cond == stmt.getCondition() && thenStmt == stmt.getThenStatement() && elseStmt == stmt.getElseStatement()) {
+			return stmt;
+		}
+		return new IfStatement(cond, thenStmt, elseStmt);
+	}
+
+	@Override
+	public ASTNode visit(WhileStatement stmt) {
+		Condition cond = (Condition) stmt.getCondition().accept(this);
+		if (Boolean.FALSE.equals(evaluate(cond))) {
+			foldCount++;
+			return new SkipStatement();
+		}
+		Statement body = (Statement) stmt.getDoStatement().accept(this);
+		if (cond == stmt.getCondition() && body == stmt.getDoStatement()) {
+			return stmt;
+		}
+		return new WhileStatement(cond, body);
+	}
+
+	@Override
+	public ASTNode visit(ReadStatement stmt) {
+		return stmt;
+	}
+
+	@Override
+	public ASTNode visit(WriteStatement stmt) {
+		boolean changed = false;
+		List<Expression> exprs = new ArrayList<>(stmt.getExpressions().size());
+		for (Expression e : stmt.getExpressions()) {
+			Expression folded = (Expression) e.accept(this);
+			changed |= folded != e;
+			exprs.add(folded);
+		}
+		return changed ? new WriteStatement(exprs) : stmt;
+	}
+
+	@Override
+	public ASTNode visit(SkipStatement stmt) {
+		return stmt;
+	}
+
+	// --- Expressions ---
+
+	@Override
+	public ASTNode visit(BinaryExpression expr) {
+		Expression left = (Expression) expr.getLeft().accept(this);
+		Expression right = (Expression) expr.getRight().accept(this);
+		String op = expr.getOperator();
+
+		if (left instanceof NumberLiteral && right instanceof NumberLiteral) {
+			long a = ((NumberLiteral) left).getValue();
+			long b = ((NumberLiteral) right).getValue();
+			Long result = null;
+			switch (op) {
+				case "+": result = a + b; break;
+				case "-": result = a - b; break;
+				case "*": result = a * b; break;
+				case "/": result = b != 0 ? a / b : null; break;
+			}
+			if (result != null && result == (int) (long) result) {
+				foldCount++;
+				return new NumberLiteral((int) (long) result);
+			}
+		}
+
+		Integer l = literal(left);
+		Integer r = literal(right);
+		if ((op.equals("+") && r != null && r == 0) || (op.equals("-") && r != null && r == 0)
+				|| ((op.equals("*") || op.equals("/")) && r != null && r == 1)) {
+			foldCount++;
+			return left;
+		}
+		if ((op.equals("+") && l != null && l == 0) || (op.equals("*") && l != null && l == 1)) {
+			foldCount++;
+			return right;
+		}
+		if (op.equals("*") && (l != null && l == 0 && !mayTrap(right) || r != null && r == 0 && !mayTrap(left))) {
+			foldCount++;
+			return new NumberLiteral(0);
+		}
+
+		if (left == expr.getLeft() && right == expr.getRight()) {
+			return expr;
+		}
+		return new BinaryExpression(left, op, right);
+	}
+
+	@Override
+	public ASTNode visit(UnaryExpression expr) {
+		Expression operand = (Expression) expr.getOperand().accept(this);
+		if (expr.getOperator().equals("+")) {
+			foldCount++;
+			return operand;
+		}
+		if (operand instanceof NumberLiteral && ((NumberLiteral) operand).getValue() != Integer.MIN_VALUE) {
+			foldCount++;
+			return new NumberLiteral(-((NumberLiteral) operand).getValue());
+		}
+		if (operand instanceof UnaryExpression && ((UnaryExpression) operand).getOperator().equals("-")) {
+			foldCount++;
+			return ((UnaryExpression) operand).getOperand(); // -(-x) = x
+		}
+		return operand == expr.getOperand() ? expr : new UnaryExpression(expr.getOperator(), operand);
+	}
+
+	@Override
+	public ASTNode visit(NumberLiteral expr) {
+		return expr;
+	}
+
+	@Override
+	public ASTNode visit(VariableAccess expr) {
+		if (expr.getSlot() != null && expr.getSlot().isConstant()) {
+			foldCount++;
+			return new NumberLiteral(expr.getSlot().getValue());
+		}
+		return expr;
+	}
+
+	// --- Conditions ---
+
+	@Override
+	public ASTNode visit(OddCondition cond) {
+		Expression expr = (Expression) cond.getExpression().accept(this);
+		return expr == cond.getExpression() ? cond : new OddCondition(expr);
+	}
+
+	@Override
+	public ASTNode visit(RelationalCondition cond) {
+		Expression left = (Expression) cond.getLeft().accept(this);
+		Expression right = (Expression) cond.getRight().accept(this);
+		if (left == cond.getLeft() && right == cond.getRight()) {
+			return cond;
+		}
+		return new RelationalCondition(left, cond.getOperator(), right);
+	}
+
+	/**
+	 * @return true if evaluating the expression may execute a division trapping at run time
+	 */
+	private static boolean mayTrap(Expression expr) {
+		if (expr instanceof BinaryExpression) {
+			BinaryExpression bin = (BinaryExpression) expr;
+			if (bin.getOperator().equals("/")) {
+				Integer divisor = literal(bin.getRight());
+				if (divisor == null || divisor == 0 || divisor == -1) {
+					return true;
+				}
+			}
+			return mayTrap(bin.getLeft()) || mayTrap(bin.getRight());
+		} else if (expr instanceof UnaryExpression) {
+			return mayTrap(((UnaryExpression) expr).getOperand());
+		}
+		return false;
+	}
+
+	private static Integer literal(Expression expr) {
+		return expr instanceof NumberLiteral ? ((NumberLiteral) expr).getValue() : null;
+	}
+}
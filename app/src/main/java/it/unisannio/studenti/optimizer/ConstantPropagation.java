@@ -0,0 +1,346 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) on a function
+ * in SSA form.
+ * <p>
+ * Every register starts as undefined and can only be lowered to a constant,
+ * then to overdefined; blocks are only evaluated once an edge reaching them
+ * is found executable, and a branch on a constant only makes its taken edge
+ * executable. This finds the constants that flow around loops and through
+ * branches decided at compile time, which the AST {@link ConstantFolder}
+ * cannot see.
+ * <p>
+ * Afterwards the uses of constant registers become immediate operands,
+ * decided branches become jumps and the blocks never reached are removed.
+ * Arithmetic wraps around at 64 bits like the generated code; a division
+ * that would trap (by 0, or of the smallest value by -1) is never folded.
+ */
+public class ConstantPropagation {
+	private static final int UNDEFINED = 0;
+	private static final int CONSTANT = 1;
+	private static final int OVERDEFINED = 2;
+
+	private int constantCount = 0;
+	private int branchCount = 0;
+
+	// State of the function being analyzed
+	private int[] state;
+	private long[] value;
+	private List<List<IrInstruction>> users;
+	private Map<IrInstruction, BasicBlock> blockOf;
+	private Set<BasicBlock> reached;
+	private Set<Long> executableEdges;
+	private ArrayDeque<BasicBlock[]> edgeWork;
+	private ArrayDeque<IrInstruction> instructionWork;
+
+	/** The number of registers found constant. */
+	public int getConstantCount() {
+		return constantCount;
+	}
+
+	/** The number of branches found to always go the same way. */
+	public int getBranchCount() {
+		return branchCount;
+	}
+
+	public void apply(IrFunction function) {
+		analyze(function);
+		rewrite(function);
+	}
+
+	private void analyze(IrFunction function) {
+		int count = function.getRegisterCount();
+		state = new int[count];
+		value = new long[count];
+		users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(null);
+		}
+		blockOf = new IdentityHashMap<>();
+		for (BasicBlock block : function.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				blockOf.put(instruction, block);
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					Operand operand = instruction.getOperand(i);
+					if (operand.isRegister()) {
+						if (users.get(operand.getRegister()) == null) {
+							users.set(operand.getRegister(), new ArrayList<>(2));
+						}
+						users.get(operand.getRegister()).add(instruction);
+					}
+				}
+			}
+		}
+		reached = new HashSet<>();
+		executableEdges = new HashSet<>();
+		edgeWork = new ArrayDeque<>();
+		instructionWork = new ArrayDeque<>();
+
+		edgeWork.add(new BasicBlock[] {null, function.getEntry()});
+		while (!edgeWork.isEmpty() || !instructionWork.isEmpty()) {
+			while (!edgeWork.isEmpty()) {
+				BasicBlock[] edge = edgeWork.poll();
+				if (edge[0] != null && !executableEdges.add(edgeKey(edge[0], edge[1]))) {
+					continue;
+				}
+				BasicBlock block = edge[1];
+				boolean first = reached.add(block);
+				for (IrInstruction instruction : block.getInstructions()) {
+					if (first || instruction.getOpcode() == Opcode.PHI) {
+						evaluate(instruction, block);
+					}
+				}
+			}
+			while (!instructionWork.isEmpty()) {
+				IrInstruction instruction = instructionWork.poll();
+				BasicBlock block = blockOf.get(instruction);
+				if (reached.contains(block)) {
+					evaluate(instruction, block);
+				}
+			}
+		}
+	}
+
+	private static long edgeKey(BasicBlock from, BasicBlock to) {
+		return ((long) from.getId() << 32) | to.getId();
+	}
+
+	private void evaluate(IrInstruction instruction, BasicBlock block) {
+		switch (instruction.getOpcode()) {
+			case JUMP:
+				markEdge(block, instruction.getTarget(0));
+				return;
+			case BRANCH: {
+				Boolean taken = evaluateBranch(instruction);
+				if (taken == null) {
+					if (!isUndefined(instruction)) {
+						markEdge(block, instruction.getTarget(0));
+						markEdge(block, instruction.getTarget(1));
+					}
+				} else {
+					markEdge(block, instruction.getTarget(taken ? 0 : 1));
+				}
+				return;
+			}
+			case PHI:
+				evaluatePhi(instruction, block);
+				return;
+			default:
+				break;
+		}
+		if (!instruction.hasResult()) {
+			return;
+		}
+		int result = instruction.getResult();
+		switch (instruction.getOpcode()) {
+			case COPY:
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+			case NEG:
+				if (isUndefined(instruction) && !isZeroProduct(instruction)) {
+					return;
+				}
+				Long folded = fold(instruction);
+				if (folded == null) {
+					lower(result, OVERDEFINED, 0);
+				} else {
+					lower(result, CONSTANT, folded);
+				}
+				return;
+			default: // FRAME, LOAD, READ: run-time values
+				lower(result, OVERDEFINED, 0);
+		}
+	}
+
+	private void evaluatePhi(IrInstruction phi, BasicBlock block) {
+		List<BasicBlock> predecessors = block.getPredecessors();
+		int newState = UNDEFINED;
+		long newValue = 0;
+		for (int i = 0; i < phi.getOperandCount(); i++) {
+			if (!executableEdges.contains(edgeKey(predecessors.get(i), block))) {
+				continue;
+			}
+			Operand operand = phi.getOperand(i);
+			int operandState = stateOf(operand);
+			if (operandState == OVERDEFINED
+					|| operandState == CONSTANT && newState == CONSTANT && valueOf(operand) != newValue) {
+				newState = OVERDEFINED;
+				break;
+			}
+			if (operandState == CONSTANT) {
+				newState = CONSTANT;
+				newValue = valueOf(operand);
+			}
+		}
+		lower(phi.getResult(), newState, newValue);
+	}
+
+	private void lower(int register, int newState, long newValue) {
+		if (newState <= state[register]) {
+			return;
+		}
+		state[register] = newState;
+		value[register] = newValue;
+		if (users.get(register) != null) {
+			instructionWork.addAll(users.get(register));
+		}
+	}
+
+	private void markEdge(BasicBlock from, BasicBlock to) {
+		if (!executableEdges.contains(edgeKey(from, to))) {
+			edgeWork.add(new BasicBlock[] {from, to});
+		}
+	}
+
+	private int stateOf(Operand operand) {
+		return operand.isConstant() ? CONSTANT : state[operand.getRegister()];
+	}
+
+	private long valueOf(Operand operand) {
+		return operand.isConstant() ? operand.getValue() : value[operand.getRegister()];
+	}
+
+	private boolean isUndefined(IrInstruction instruction) {
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			if (stateOf(instruction.getOperand(i)) == UNDEFINED) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** A multiplication by the constant 0 is 0 whatever the other operand. */
+	private boolean isZeroProduct(IrInstruction instruction) {
+		if (instruction.getOpcode() != Opcode.MUL) {
+			return false;
+		}
+		for (int i = 0; i < 2; i++) {
+			Operand operand = instruction.getOperand(i);
+			if (stateOf(operand) == CONSTANT && valueOf(operand) == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the value of an arithmetic instruction, null if it is not a
+	 *         compile-time constant (or a division that must trap at run time)
+	 */
+	private Long fold(IrInstruction instruction) {
+		if (isZeroProduct(instruction)) {
+			return 0L;
+		}
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			if (stateOf(instruction.getOperand(i)) != CONSTANT) {
+				return null;
+			}
+		}
+		long a = valueOf(instruction.getOperand(0));
+		switch (instruction.getOpcode()) {
+			case COPY:
+				return a;
+			case NEG:
+				return -a;
+			default:
+				break;
+		}
+		long b = valueOf(instruction.getOperand(1));
+		switch (instruction.getOpcode()) {
+			case ADD:
+				return a + b;
+			case SUB:
+				return a - b;
+			case MUL:
+				return a * b;
+			case DIV:
+				return b == 0 || b == -1 && a == Long.MIN_VALUE ? null : a / b;
+			default:
+				throw new IllegalStateException("Not arithmetic: " + instruction);
+		}
+	}
+
+	/**
+	 * @return the outcome of a branch, null if it is not known at compile time
+	 */
+	private Boolean evaluateBranch(IrInstruction branch) {
+		for (int i = 0; i < branch.getOperandCount(); i++) {
+			if (stateOf(branch.getOperand(i)) != CONSTANT) {
+				return null;
+			}
+		}
+		long left = valueOf(branch.getOperand(0));
+		if (branch.getRelation().equals("odd")) {
+			return (left & 1) != 0;
+		}
+		return ConstantFolder.compare(branch.getRelation(), left, valueOf(branch.getOperand(1)));
+	}
+
+	/**
+	 * Replaces constant registers by their values, removes their definitions,
+	 * turns decided branches into jumps and removes the unreached blocks.
+	 */
+	private void rewrite(IrFunction function) {
+		for (int register = 0; register < state.length; register++) {
+			if (state[register] == CONSTANT) {
+				constantCount++;
+			}
+		}
+		for (BasicBlock block : function.getBlocks()) {
+			if (!reached.contains(block)) {
+				continue;
+			}
+			List<IrInstruction> instructions = block.getInstructions();
+			instructions.removeIf(instruction -> instruction.hasResult() && state[instruction.getResult()] == CONSTANT);
+			for (IrInstruction instruction : instructions) {
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					Operand operand = instruction.getOperand(i);
+					if (operand.isRegister() && state[operand.getRegister()] == CONSTANT) {
+						instruction.setOperand(i, Operand.constant(value[operand.getRegister()]));
+					}
+				}
+			}
+
+			IrInstruction terminator = block.getTerminator();
+			if (terminator.getOpcode() == Opcode.BRANCH) {
+				boolean ifTrue = executableEdges.contains(edgeKey(block, terminator.getTarget(0)));
+				boolean ifFalse = executableEdges.contains(edgeKey(block, terminator.getTarget(1)));
+				if (ifTrue != ifFalse) {
+					BasicBlock taken = terminator.getTarget(ifTrue ? 0 : 1);
+					BasicBlock notTaken = terminator.getTarget(ifTrue ? 1 : 0);
+					terminator.becomeJump(taken);
+					if (notTaken != taken) {
+						notTaken.removePredecessor(block);
+					}
+					branchCount++;
+				}
+			}
+		}
+		function.getBlocks().removeIf(block -> {
+			if (reached.contains(block)) {
+				return false;
+			}
+			for (BasicBlock successor : block.getSuccessors()) {
+				successor.removePredecessor(block);
+			}
+			return true;
+		});
+	}
+}
@@ -0,0 +1,91 @@
+package it.unisannio.studenti.optimizer;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+
+/**
+ * Copy propagation on a function in SSA form: the uses of the result of
+ * {@code r = COPY x} are replaced by {@code x} and the copy is removed. In
+ * SSA the definition of {@code x} dominates the copy, hence all its uses.
+ * <p>
+ * A PHI whose operands are all the same value (or the PHI itself, around a
+ * loop) is a copy of that value too.
+ */
+public class CopyPropagation {
+	private int copyCount = 0;
+
+	/** The number of copies and PHIs removed. */
+	public int getCopyCount() {
+		return copyCount;
+	}
+
+	public void apply(IrFunction function) {
+		Operand[] replacement = new Operand[function.getRegisterCount()];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (BasicBlock block : function.getBlocks()) {
+				for (IrInstruction instruction : block.getInstructions()) {
+					if (!instruction.hasResult() || replacement[instruction.getResult()] != null) {
+						continue;
+					}
+					Operand value = copiedValue(instruction, replacement);
+					if (value != null) {
+						replacement[instruction.getResult()] = value;
+						changed = true;
+					}
+				}
+			}
+		}
+
+		for (BasicBlock block : function.getBlocks()) {
+			block.getInstructions().removeIf(instruction -> {
+				if (instruction.hasResult() && replacement[instruction.getResult()] != null) {
+					copyCount++;
+					return true;
+				}
+				return false;
+			});
+			for (IrInstruction instruction : block.getInstructions()) {
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					instruction.setOperand(i, resolve(instruction.getOperand(i), replacement));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the value copied by a COPY or a PHI with a single value, null for other instructions
+	 */
+	private static Operand copiedValue(IrInstruction instruction, Operand[] replacement) {
+		if (instruction.getOpcode() == Opcode.COPY) {
+			return resolve(instruction.getOperand(0), replacement);
+		}
+		if (instruction.getOpcode() != Opcode.PHI) {
+			return null;
+		}
+		Operand self = Operand.register(instruction.getResult());
+		Operand value = null;
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			Operand operand = resolve(instruction.getOperand(i), replacement);
+			if (operand.equals(self) || operand.equals(value)) {
+				continue;
+			}
+			if (value != null) {
+				return null;
+			}
+			value = operand;
+		}
+		return value;
+	}
+
+	private static Operand resolve(Operand operand, Operand[] replacement) {
+		while (operand.isRegister() && replacement[operand.getRegister()] != null) {
+			operand = replacement[operand.getRegister()];
+		}
+		return operand;
+	}
+}
@@ -0,0 +1,194 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+import it.unisannio.studenti.ir.Variable;
+
+/**
+ * Removes the instructions whose effect is never observed, on a function in
+ * SSA form.
+ * <ul>
+ * <li>Dead stores: a STORE is dead when the variable is assigned again, or
+ *     the function returns, before anything can read it. This is a backward
+ *     liveness of the variables in memory: a LOAD reads its variable, a CALL
+ *     may read any of them, and at RETURN only the non-local variables
+ *     survive (the frame of the function is gone).</li>
+ * <li>Dead instructions: starting from the instructions with side effects,
+ *     everything that computes one of their operands is live, transitively;
+ *     the rest is removed, including PHIs only feeding each other around a
+ *     loop. A division whose divisor is a constant that cannot trap has no
+ *     side effect.</li>
+ * </ul>
+ */
+public class DeadCodeElimination {
+	private int storeCount = 0;
+	private int instructionCount = 0;
+
+	/** The number of dead stores removed. */
+	public int getStoreCount() {
+		return storeCount;
+	}
+
+	/** The number of dead instructions removed, stores excluded. */
+	public int getInstructionCount() {
+		return instructionCount;
+	}
+
+	public void apply(IrFunction function) {
+		removeDeadStores(function);
+		removeDeadInstructions(function);
+	}
+
+	// --- Dead stores ---
+
+	private void removeDeadStores(IrFunction function) {
+		Map<Variable, Integer> index = new HashMap<>();
+		for (BasicBlock block : function.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				if (instruction.getVariable() != null) {
+					index.putIfAbsent(instruction.getVariable(), index.size());
+				}
+			}
+		}
+		if (index.isEmpty()) {
+			return;
+		}
+		BitSet nonLocal = new BitSet();
+		for (Map.Entry<Variable, Integer> entry : index.entrySet()) {
+			if (!entry.getKey().isLocal()) {
+				nonLocal.set(entry.getValue());
+			}
+		}
+
+		List<BasicBlock> blocks = function.getBlocks();
+		Map<BasicBlock, BitSet> liveIn = new HashMap<>();
+		for (BasicBlock block : blocks) {
+			liveIn.put(block, new BitSet());
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int b = blocks.size() - 1; b >= 0; b--) {
+				BasicBlock block = blocks.get(b);
+				BitSet live = liveOut(block, liveIn, nonLocal);
+				scan(block, live, index, false);
+				if (!live.equals(liveIn.get(block))) {
+					liveIn.put(block, live);
+					changed = true;
+				}
+			}
+		}
+		for (BasicBlock block : blocks) {
+			scan(block, liveOut(block, liveIn, nonLocal), index, true);
+		}
+	}
+
+	private static BitSet liveOut(BasicBlock block, Map<BasicBlock, BitSet> liveIn, BitSet nonLocal) {
+		BitSet live = new BitSet();
+		IrInstruction terminator = block.getTerminator();
+		if (terminator.getOpcode() == Opcode.RETURN) {
+			live.or(nonLocal);
+		}
+		for (BasicBlock successor : block.getSuccessors()) {
+			live.or(liveIn.get(successor));
+		}
+		return live;
+	}
+
+	/**
+	 * Walks a block backward from {@code live}, the variables live at its
+	 * end, leaving the ones live at its start; removes the dead stores when
+	 * {@code remove} is set.
+	 */
+	private void scan(BasicBlock block, BitSet live, Map<Variable, Integer> index, boolean remove) {
+		List<IrInstruction> instructions = block.getInstructions();
+		for (int i = instructions.size() - 1; i >= 0; i--) {
+			IrInstruction instruction = instructions.get(i);
+			switch (instruction.getOpcode()) {
+				case LOAD:
+					live.set(index.get(instruction.getVariable()));
+					break;
+				case STORE: {
+					int v = index.get(instruction.getVariable());
+					if (!live.get(v)) {
+						if (remove) {
+							instructions.remove(i);
+							storeCount++;
+						}
+					} else {
+						live.clear(v);
+					}
+					break;
+				}
+				case CALL:
+					live.set(0, index.size());
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	// --- Dead instructions ---
+
+	private void removeDeadInstructions(IrFunction function) {
+		IrInstruction[] definitions = new IrInstruction[function.getRegisterCount()];
+		ArrayDeque<IrInstruction> work = new ArrayDeque<>();
+		Set<IrInstruction> live = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (BasicBlock block : function.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				if (instruction.hasResult()) {
+					definitions[instruction.getResult()] = instruction;
+				}
+				if (isRoot(instruction)) {
+					live.add(instruction);
+					work.push(instruction);
+				}
+			}
+		}
+		while (!work.isEmpty()) {
+			IrInstruction instruction = work.pop();
+			for (int i = 0; i < instruction.getOperandCount(); i++) {
+				Operand operand = instruction.getOperand(i);
+				if (operand.isRegister()) {
+					IrInstruction definition = definitions[operand.getRegister()];
+					if (definition != null && live.add(definition)) {
+						work.push(definition);
+					}
+				}
+			}
+		}
+		for (BasicBlock block : function.getBlocks()) {
+			block.getInstructions().removeIf(instruction -> {
+				if (live.contains(instruction)) {
+					return false;
+				}
+				instructionCount++;
+				return true;
+			});
+		}
+	}
+
+	/**
+	 * @return true if the instruction must stay even when its result is not used
+	 */
+	static boolean isRoot(IrInstruction instruction) {
+		if (instruction.getOpcode() == Opcode.DIV) {
+			Operand divisor = instruction.getOperand(1);
+			return !divisor.isConstant() || divisor.getValue() == 0 || divisor.getValue() == -1;
+		}
+		return instruction.getOpcode().hasSideEffects();
+	}
+}
@@ -0,0 +1,67 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import it.unisannio.studenti.ast.constructs.*;
+import it.unisannio.studenti.symbolTable.Symbol;
+
+/**
+ * AST pass removing the procedures the main program cannot reach through
+ * calls, according to the {@link CallGraph}: procedures never called,
+ * called only from removed procedures (including groups calling each
+ * other) or only from branches the {@link ConstantFolder} removed.
+ * <p>
+ * Removing a procedure removes the procedures it declares, which only it
+ * can call. The frames of the remaining procedures are unchanged.
+ */
+public class DeadProcedureEliminator {
+	private int removedCount = 0;
+
+	public static Program eliminate(Program program) {
+		return new DeadProcedureEliminator().apply(program);
+	}
+
+	/** The number of procedures removed, nested ones included. */
+	public int getRemovedCount() {
+		return removedCount;
+	}
+
+	public Program apply(Program program) {
+		Set<Symbol> reachable = new CallGraph(program).getReachable();
+		Block block = removeProcedures(program.getBlock(), reachable);
+		return block == program.getBlock() ? program : new Program(block);
+	}
+
+	private Block removeProcedures(Block block, Set<Symbol> reachable) {
+		boolean changed = false;
+		List<ProcedureDeclaration> procs = new ArrayList<>(block.getProcs().size());
+		for (ProcedureDeclaration proc : block.getProcs()) {
+			if (!reachable.contains(proc.getSymbol())) {
+				removedCount += countProcedures(proc.getBlock()) + 1;
+				changed = true;
+				continue;
+			}
+			Block inner = removeProcedures(proc.getBlock(), reachable);
+			if (inner != proc.getBlock()) {
+				proc = new ProcedureDeclaration(proc.getName(), inner, proc.getSymbol());
+				changed = true;
+			}
+			procs.add(proc);
+		}
+		if (!changed) {
+			return block;
+		}
+		return new Block(block.getConsts(), block.getVars(), procs, block.getStatement(),
+				block.getNestingLevel(), block.getLocalsSize());
+	}
+
+	private static int countProcedures(Block block) {
+		int count = 0;
+		for (ProcedureDeclaration proc : block.getProcs()) {
+			count += countProcedures(proc.getBlock()) + 1;
+		}
+		return count;
+	}
+}
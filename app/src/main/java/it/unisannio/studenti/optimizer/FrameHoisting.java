@@ -0,0 +1,54 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+
+/**
+ * Computes every frame pointer a function needs once, at its entry.
+ * <p>
+ * The IR builder emits a FRAME instruction, which follows the static chain,
+ * for every non-local access. The static links of a frame never change, so
+ * the FRAME instructions with the same number of levels are all replaced by
+ * copies of a single one placed at the start of the entry block, which
+ * dominates the whole function; copy propagation then removes the copies.
+ * Reaching the frame of a non-local variable then costs at most one load,
+ * from the spill slot of the frame pointer, instead of one per level.
+ */
+public class FrameHoisting {
+	private int frameCount = 0;
+
+	/** The number of FRAME instructions replaced by one computed at the entry. */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	public void apply(IrFunction function) {
+		TreeMap<Integer, Operand> hoisted = new TreeMap<>();
+		for (BasicBlock block : function.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				if (instruction.getOpcode() != Opcode.FRAME) {
+					continue;
+				}
+				Operand frame = hoisted.get(instruction.getLevels());
+				if (frame == null) {
+					hoisted.put(instruction.getLevels(), Operand.register(function.newRegister()));
+				} else {
+					frameCount++;
+				}
+				instruction.becomeCopy(hoisted.get(instruction.getLevels()));
+			}
+		}
+		List<IrInstruction> frames = new ArrayList<>();
+		for (int levels : hoisted.keySet()) {
+			frames.add(IrInstruction.frame(hoisted.get(levels).getRegister(), levels));
+		}
+		function.getEntry().getInstructions().addAll(0, frames);
+	}
+}
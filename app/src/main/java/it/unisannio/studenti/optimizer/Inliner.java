@@ -0,0 +1,270 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unisannio.studenti.ast.ASTNodeCounter;
+import it.unisannio.studenti.ast.constructs.*;
+import it.unisannio.studenti.symbolTable.Slot;
+import it.unisannio.studenti.symbolTable.Symbol;
+
+/**
+ * AST pass replacing calls with the body of the called procedure, when the
+ * procedure is small (at every call site) or called only once (at that
+ * site). The procedures whose calls were all replaced are left to the
+ * {@link DeadProcedureEliminator}.
+ * <p>
+ * The body is copied into the calling block with its slots relocated. A
+ * variable {@code d} static links up from the callee (at nesting level
+ * {@code calleeLevel}) is {@code d + callerLevel - calleeLevel} links up
+ * from the caller, which is nested in the block declaring the callee; the
+ * locals of the callee get new slots at the end of the caller's frame, the
+ * same ones at every call site in that block. Calls in the body are
+ * relocated the same way.
+ * <p>
+ * Procedures declaring nested procedures are not inlined, since those use
+ * the callee's frame as static link; nor are recursive ones. The bodies
+ * being inlined have their own calls inlined first, and their size is
+ * measured after that. The call counts follow the calls removed and copied,
+ * and the code added by copying bodies to several call sites is limited to
+ * the size of the program (at least {@code MIN_GROWTH} nodes), so that a
+ * chain of procedures each calling the next twice cannot grow the program
+ * exponentially.
+ */
+public class Inliner {
+	/** Body size (AST nodes) of the procedures inlined at every call site. */
+	private static final int SMALL_SIZE = 24;
+	/** Body size (AST nodes) of the procedures inlined at their only call site. */
+	private static final int SINGLE_CALL_SIZE = 400;
+	/** AST nodes the copies of inlined bodies may add to a small program. */
+	private static final int MIN_GROWTH = 2000;
+
+	private CallGraph calls;
+	private final Map<Symbol, Integer> callCounts = new HashMap<>(); // Updated as calls are removed and copied
+	private final Map<Symbol, Integer> sizes = new HashMap<>(); // Of the bodies after inlining
+	private int growthBudget;
+	private final Map<Symbol, ProcedureDeclaration> transformed = new HashMap<>();
+	private int inlineCount = 0;
+
+	// Block being transformed
+	private int level;
+	private int localsSize;
+	private Map<Symbol, Integer> localShifts; // Offset shift of the locals of each callee inlined here
+
+	public static Program inline(Program program) {
+		return new Inliner().apply(program);
+	}
+
+	/** The number of calls replaced by a procedure body. */
+	public int getInlineCount() {
+		return inlineCount;
+	}
+
+	public Program apply(Program program) {
+		calls = new CallGraph(program);
+		growthBudget = Math.max(MIN_GROWTH, ASTNodeCounter.count(program));
+		Block block = transform(program.getBlock());
+		return block == program.getBlock() ? program : new Program(block);
+	}
+
+	// --- Analysis ---
+
+	private int getCallCount(Symbol procedure) {
+		return callCounts.computeIfAbsent(procedure, calls::getCallCount);
+	}
+
+	private boolean isInlinable(Symbol procedure) {
+		ProcedureDeclaration decl = calls.getDeclaration(procedure);
+		if (decl == null || !decl.getBlock().getProcs().isEmpty() || calls.isRecursive(procedure)) {
+			return false;
+		}
+		int callCount = getCallCount(procedure);
+		int limit = callCount == 1 ? SINGLE_CALL_SIZE : SMALL_SIZE;
+		if (ASTNodeCounter.count(decl.getBlock().getStatement()) > limit) {
+			return false; // Inlining only makes the body larger
+		}
+		int size = sizes.computeIfAbsent(procedure, p -> ASTNodeCounter.count(transform(decl).getBlock().getStatement()));
+		// The last call moves the body, the others copy it
+		return size <= limit && (callCount == 1 || size <= growthBudget);
+	}
+
+	/**
+	 * Updates the call counts and the growth budget for a call replaced by a copy of {@code body}.
+	 */
+	private void account(Symbol procedure, Statement body) {
+		int callCount = getCallCount(procedure);
+		if (callCount > 1) {
+			growthBudget -= sizes.get(procedure);
+		}
+		callCounts.put(procedure, callCount - 1);
+		List<CallStatement> copied = new ArrayList<>();
+		CallGraph.collectCalls(body, copied);
+		for (CallStatement call : copied) {
+			callCounts.put(call.getSymbol(), getCallCount(call.getSymbol()) + 1);
+		}
+	}
+
+	// --- Transformation ---
+
+	private Block transform(Block block) {
+		int savedLevel = level;
+		int savedLocalsSize = localsSize;
+		Map<Symbol, Integer> savedShifts = localShifts;
+		level = block.getNestingLevel();
+		localsSize = block.getLocalsSize();
+		localShifts = new HashMap<>();
+
+		boolean changed = false;
+		List<ProcedureDeclaration> procs = new ArrayList<>(block.getProcs().size());
+		for (ProcedureDeclaration proc : block.getProcs()) {
+			ProcedureDeclaration t = transform(proc);
+			changed |= t != proc;
+			procs.add(t);
+		}
+		Statement statement = inlineCalls(block.getStatement());
+		changed |= statement != block.getStatement();
+		Block result = changed
+				? new Block(block.getConsts(), block.getVars(), procs, statement, block.getNestingLevel(), localsSize)
+				: block;
+
+		level = savedLevel;
+		localsSize = savedLocalsSize;
+		localShifts = savedShifts;
+		return result;
+	}
+
+	private ProcedureDeclaration transform(ProcedureDeclaration decl) {
+		ProcedureDeclaration result = transformed.get(decl.getSymbol());
+		if (result == null) {
+			Block block = transform(decl.getBlock());
+			result = block == decl.getBlock() ? decl : new ProcedureDeclaration(decl.getName(), block, decl.getSymbol());
+			transformed.put(decl.getSymbol(), result);
+		}
+		return result;
+	}
+
+	private Statement inlineCalls(Statement stmt) {
+		if (stmt instanceof CallStatement) {
+			CallStatement call = (CallStatement) stmt;
+			if (!isInlinable(call.getSymbol())) {
+				return stmt;
+			}
+			Block body = transform(calls.getDeclaration(call.getSymbol())).getBlock();
+			Integer shift = localShifts.get(call.getSymbol());
+			if (shift == null) {
+				shift = -localsSize;
+				localsSize += body.getLocalsSize();
+				localShifts.put(call.getSymbol(), shift);
+			}
+			account(call.getSymbol(), body.getStatement());
+			inlineCount++;
+			return relocate(body.getStatement(), level - body.getNestingLevel(), shift);
+		} else if (stmt instanceof BeginStatement) {
+			BeginStatement begin = (BeginStatement) stmt;
+			boolean changed = false;
+			List<Statement> statements = new ArrayList<>(begin.getStatements().size());
+			for (Statement s : begin.getStatements()) {
+				Statement t = inlineCalls(s);
+				changed |= t != s;
+				statements.add(t);
+			}
+			return changed ? new BeginStatement(statements) : stmt;
+		} else if (stmt instanceof IfStatement) {
+			IfStatement ifStmt = (IfStatement) stmt;
+			Statement thenStmt = inlineCalls(ifStmt.getThenStatement());
+			Statement elseStmt = ifStmt.getElseStatement() != null ? inlineCalls(ifStmt.getElseStatement()) : null;
+			if (thenStmt == ifStmt.getThenStatement() && elseStmt == ifStmt.getElseStatement()) {
+				return stmt;
+			}
+			return new IfStatement(ifStmt.getCondition(), thenStmt, elseStmt);
+		} else if (stmt instanceof WhileStatement) {
+			WhileStatement whileStmt = (WhileStatement) stmt;
+			Statement body = inlineCalls(whileStmt.getDoStatement());
+			return body == whileStmt.getDoStatement() ? stmt : new WhileStatement(whileStmt.getCondition(), body);
+		}
+		return stmt;
+	}
+
+	// --- Relocation of an inlined body ---
+
+	/**
+	 * @param levelShift caller level minus callee level, added to the level delta of non-local slots
+	 * @param offsetShift added to the offset of the callee's locals
+	 */
+	private static Slot relocate(Slot slot, int levelShift, int offsetShift) {
+		if (slot.isConstant()) {
+			return slot;
+		}
+		if (slot.getLevelDelta() == 0) {
+			return slot.relocate(0, slot.getOffset() + offsetShift);
+		}
+		return slot.relocate(slot.getLevelDelta() + levelShift, slot.getOffset());
+	}
+
+	private static Statement relocate(Statement stmt, int levelShift, int offsetShift) {
+		if (stmt instanceof AssignmentStatement) {
+			AssignmentStatement assignment = (AssignmentStatement) stmt;
+			return new AssignmentStatement(assignment.getVariable(),
+					relocateExpression(assignment.getExpression(), levelShift, offsetShift),
+					relocate(assignment.getSlot(), levelShift, offsetShift));
+		} else if (stmt instanceof CallStatement) {
+			CallStatement call = (CallStatement) stmt;
+			return new CallStatement(call.getProcedureName(), relocate(call.getSlot(), levelShift, offsetShift));
+		} else if (stmt instanceof BeginStatement) {
+			List<Statement> statements = new ArrayList<>();
+			for (Statement s : ((BeginStatement) stmt).getStatements()) {
+				statements.add(relocate(s, levelShift, offsetShift));
+			}
+			return new BeginStatement(statements);
+		} else if (stmt instanceof IfStatement) {
+			IfStatement ifStmt = (IfStatement) stmt;
+			return new IfStatement(relocateCondition(ifStmt.getCondition(), levelShift, offsetShift),
+					relocate(ifStmt.getThenStatement(), levelShift, offsetShift),
+					ifStmt.getElseStatement() != null ? relocate(ifStmt.getElseStatement(), levelShift, offsetShift) : null);
+		} else if (stmt instanceof WhileStatement) {
+			WhileStatement whileStmt = (WhileStatement) stmt;
+			return new WhileStatement(relocateCondition(whileStmt.getCondition(), levelShift, offsetShift),
+					relocate(whileStmt.getDoStatement(), levelShift, offsetShift));
+		} else if (stmt instanceof ReadStatement) {
+			ReadStatement read = (ReadStatement) stmt;
+			List<Slot> slots = new ArrayList<>();
+			for (Slot slot : read.getSlots()) {
+				slots.add(relocate(slot, levelShift, offsetShift));
+			}
+			return new ReadStatement(read.getVariables(), slots);
+		} else if (stmt instanceof WriteStatement) {
+			List<Expression> exprs = new ArrayList<>();
+			for (Expression e : ((WriteStatement) stmt).getExpressions()) {
+				exprs.add(relocateExpression(e, levelShift, offsetShift));
+			}
+			return new WriteStatement(exprs);
+		}
+		return stmt; // SkipStatement
+	}
+
+	private static Condition relocateCondition(Condition cond, int levelShift, int offsetShift) {
+		if (cond instanceof OddCondition) {
+			return new OddCondition(relocateExpression(((OddCondition) cond).getExpression(), levelShift, offsetShift));
+		}
+		RelationalCondition rel = (RelationalCondition) cond;
+		return new RelationalCondition(relocateExpression(rel.getLeft(), levelShift, offsetShift), rel.getOperator(),
+				relocateExpression(rel.getRight(), levelShift, offsetShift));
+	}
+
+	private static Expression relocateExpression(Expression expr, int levelShift, int offsetShift) {
+		if (expr instanceof BinaryExpression) {
+			BinaryExpression bin = (BinaryExpression) expr;
+			return new BinaryExpression(relocateExpression(bin.getLeft(), levelShift, offsetShift), bin.getOperator(),
+					relocateExpression(bin.getRight(), levelShift, offsetShift));
+		} else if (expr instanceof UnaryExpression) {
+			UnaryExpression unary = (UnaryExpression) expr;
+			return new UnaryExpression(unary.getOperator(), relocateExpression(unary.getOperand(), levelShift, offsetShift));
+		} else if (expr instanceof VariableAccess) {
+			VariableAccess access = (VariableAccess) expr;
+			return new VariableAccess(access.getName(), relocate(access.getSlot(), levelShift, offsetShift));
+		}
+		return expr; // NumberLiteral
+	}
+}
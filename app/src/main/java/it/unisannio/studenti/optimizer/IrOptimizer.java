@@ -0,0 +1,90 @@
+package it.unisannio.studenti.optimizer;
+
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrProgram;
+import it.unisannio.studenti.ir.PhiElimination;
+import it.unisannio.studenti.ir.SsaBuilder;
+
+/**
+ * The IR optimization pipeline of -O2: puts the program in SSA form, runs
+ * the scalar passes on every function and takes it out of SSA form again,
+ * ready for instruction selection.
+ * <p>
+ * The passes are run twice, since each one exposes work for the others:
+ * value numbering forwards stored constants to loads that constant
+ * propagation can then fold, constant propagation removes branches that
+ * leave blocks to merge, and so on. Loop-invariant code motion needs to
+ * know what the calls of a loop may write, summarized for the whole program
+ * once the locals are promoted.
+ */
+public class IrOptimizer {
+	private static final int ROUNDS = 2;
+
+	private final SsaBuilder ssa = new SsaBuilder();
+	private final FrameHoisting frames = new FrameHoisting();
+	private final ConstantPropagation constants = new ConstantPropagation();
+	private final CopyPropagation copies = new CopyPropagation();
+	private final ValueNumbering values = new ValueNumbering();
+	private final DeadCodeElimination deadCode = new DeadCodeElimination();
+	private final CfgSimplifier cfg = new CfgSimplifier();
+	private final PhiElimination phis = new PhiElimination();
+	private LoopInvariantCodeMotion invariants;
+
+	public void apply(IrProgram program) {
+		ssa.apply(program);
+		invariants = new LoopInvariantCodeMotion(new ModSummary(program));
+		for (IrFunction function : program.getFunctions()) {
+			frames.apply(function);
+			for (int round = 0; round < ROUNDS; round++) {
+				constants.apply(function);
+				copies.apply(function);
+				values.apply(function);
+				invariants.apply(function);
+				deadCode.apply(function);
+				cfg.apply(function);
+				copies.apply(function);
+			}
+		}
+		phis.apply(program);
+	}
+
+	/** The number of local variables promoted to registers. */
+	public int getPromotedCount() {
+		return ssa.getPromotedCount();
+	}
+
+	/** The number of frame pointer computations replaced by one at the function entry. */
+	public int getHoistedFrameCount() {
+		return frames.getFrameCount();
+	}
+
+	/** The number of registers and branches found constant. */
+	public int getConstantCount() {
+		return constants.getConstantCount() + constants.getBranchCount();
+	}
+
+	/** The number of loads and computations replaced by a value already available. */
+	public int getRedundantCount() {
+		return values.getLoadCount() + values.getExpressionCount();
+	}
+
+	/** The number of instructions moved out of loops. */
+	public int getHoistedCount() {
+		return invariants != null ? invariants.getHoistedCount() : 0;
+	}
+
+	/** The number of dead stores and instructions removed. */
+	public int getDeadCount() {
+		return deadCode.getStoreCount() + deadCode.getInstructionCount();
+	}
+
+	/** The number of blocks merged or bypassed. */
+	public int getMergedBlockCount() {
+		return cfg.getBlockCount();
+	}
+
+	/** The number of copies left by leaving SSA form. */
+	public int getCopyCount() {
+		return phis.getCopyCount();
+	}
+}
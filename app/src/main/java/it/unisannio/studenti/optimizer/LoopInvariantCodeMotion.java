@@ -0,0 +1,235 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.Dominators;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.LoopNest;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+import it.unisannio.studenti.ir.Variable;
+
+/**
+ * Loop-invariant code motion on a function in SSA form: the computations of
+ * a loop whose operands are all defined outside it are moved to its
+ * preheader, a block that runs once before the loop is entered.
+ * <p>
+ * Arithmetic is invariant when its operands are, a LOAD when its frame is
+ * and neither a STORE of the loop nor a procedure it calls (according to a
+ * {@link ModSummary}) may write its variable. Inner loops are processed
+ * first, so a value can move out of several loops in turn.
+ * <p>
+ * The moved instructions run even when the loop body would not, so only
+ * those that cannot trap are moved: a division only when its divisor is a
+ * constant other than 0 and -1.
+ */
+public class LoopInvariantCodeMotion {
+	private final ModSummary summary;
+	private int hoistedCount = 0;
+	private int preheaderCount = 0;
+
+	public LoopInvariantCodeMotion(ModSummary summary) {
+		this.summary = summary;
+	}
+
+	/** The number of instructions moved out of a loop. */
+	public int getHoistedCount() {
+		return hoistedCount;
+	}
+
+	/** The number of blocks added as preheaders. */
+	public int getPreheaderCount() {
+		return preheaderCount;
+	}
+
+	public void apply(IrFunction function) {
+		LoopNest loops = new LoopNest(new Dominators(function));
+		if (loops.getLoops().isEmpty()) {
+			return;
+		}
+		boolean added = false;
+		for (LoopNest.Loop loop : loops.getLoops()) {
+			added |= ensurePreheader(function, loop);
+		}
+		if (added) {
+			loops = new LoopNest(new Dominators(function)); // The preheaders belong to the enclosing loops
+		}
+		for (LoopNest.Loop loop : loops.getLoops()) {
+			hoist(function, loop, preheaderOf(loop));
+		}
+	}
+
+	/**
+	 * @return the only predecessor of the header outside the loop, null if there are several
+	 */
+	private static BasicBlock preheaderOf(LoopNest.Loop loop) {
+		BasicBlock preheader = null;
+		for (BasicBlock predecessor : loop.getHeader().getPredecessors()) {
+			if (!loop.contains(predecessor)) {
+				if (preheader != null) {
+					return null;
+				}
+				preheader = predecessor;
+			}
+		}
+		return preheader != null && preheader.getSuccessors().size() == 1 ? preheader : null;
+	}
+
+	/**
+	 * Gives the loop a preheader, unless it has one already: the edges
+	 * entering the header from outside the loop are redirected to a new
+	 * block jumping to the header, where their PHI operands are merged.
+	 *
+	 * @return true if a block was added
+	 */
+	private boolean ensurePreheader(IrFunction function, LoopNest.Loop loop) {
+		BasicBlock header = loop.getHeader();
+		List<BasicBlock> predecessors = header.getPredecessors();
+		List<Integer> outside = new ArrayList<>();
+		for (int i = 0; i < predecessors.size(); i++) {
+			if (!loop.contains(predecessors.get(i))) {
+				outside.add(i);
+			}
+		}
+		if (outside.isEmpty() || preheaderOf(loop) != null) {
+			return false;
+		}
+
+		BasicBlock preheader = function.newBlock();
+		List<BasicBlock> inside = new ArrayList<>();
+		for (int i = 0; i < predecessors.size(); i++) {
+			BasicBlock predecessor = predecessors.get(i);
+			if (outside.contains(i)) {
+				preheader.getPredecessors().add(predecessor);
+				IrInstruction terminator = predecessor.getTerminator();
+				for (int t = 0; t < terminator.getTargetCount(); t++) {
+					if (terminator.getTarget(t) == header) {
+						terminator.setTarget(t, preheader);
+					}
+				}
+			} else {
+				inside.add(predecessor);
+			}
+		}
+
+		List<IrInstruction> instructions = header.getInstructions();
+		for (int p = 0; p < instructions.size() && instructions.get(p).getOpcode() == Opcode.PHI; p++) {
+			IrInstruction phi = instructions.get(p);
+			Operand[] entering = new Operand[outside.size()];
+			for (int i = 0; i < entering.length; i++) {
+				entering[i] = phi.getOperand(outside.get(i));
+			}
+			Operand merged = entering[0];
+			if (entering.length > 1) {
+				merged = Operand.register(function.newRegister());
+				preheader.add(IrInstruction.phi(merged.getRegister(), entering));
+			}
+			Operand[] operands = new Operand[inside.size() + 1];
+			for (int i = 0, o = 0; i < predecessors.size(); i++) {
+				if (!outside.contains(i)) {
+					operands[o++] = phi.getOperand(i);
+				}
+			}
+			operands[inside.size()] = merged;
+			instructions.set(p, IrInstruction.phi(phi.getResult(), operands));
+		}
+		preheader.add(IrInstruction.jump(header));
+		predecessors.clear();
+		predecessors.addAll(inside);
+		predecessors.add(preheader);
+
+		List<BasicBlock> blocks = function.getBlocks();
+		blocks.add(blocks.indexOf(header), preheader); // Falls through into the header
+		preheaderCount++;
+		return true;
+	}
+
+	private void hoist(IrFunction function, LoopNest.Loop loop, BasicBlock preheader) {
+		if (preheader == null) {
+			return;
+		}
+		BitSet definedInLoop = new BitSet();
+		Set<Variable> stored = new HashSet<>();
+		List<IrInstruction> calls = new ArrayList<>();
+		for (BasicBlock block : loop.getBlocks()) {
+			for (IrInstruction instruction : block.getInstructions()) {
+				if (instruction.hasResult()) {
+					definedInLoop.set(instruction.getResult());
+				}
+				if (instruction.getOpcode() == Opcode.STORE) {
+					stored.add(instruction.getVariable());
+				} else if (instruction.getOpcode() == Opcode.CALL) {
+					calls.add(instruction);
+				}
+			}
+		}
+
+		List<IrInstruction> target = preheader.getInstructions();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (BasicBlock block : function.getBlocks()) {
+				if (!loop.contains(block)) {
+					continue;
+				}
+				List<IrInstruction> instructions = block.getInstructions();
+				for (int i = 0; i < instructions.size(); i++) {
+					IrInstruction instruction = instructions.get(i);
+					if (!isMovable(instruction, function, stored, calls) || !isInvariant(instruction, definedInLoop)) {
+						continue;
+					}
+					instructions.remove(i--);
+					target.add(target.size() - 1, instruction);
+					definedInLoop.clear(instruction.getResult());
+					hoistedCount++;
+					changed = true;
+				}
+			}
+		}
+	}
+
+	private boolean isMovable(IrInstruction instruction, IrFunction function, Set<Variable> stored,
+			List<IrInstruction> calls) {
+		switch (instruction.getOpcode()) {
+			case COPY:
+			case ADD:
+			case SUB:
+			case MUL:
+			case NEG:
+			case FRAME:
+				return true;
+			case DIV:
+				return !DeadCodeElimination.isRoot(instruction);
+			case LOAD: {
+				Variable variable = instruction.getVariable();
+				if (stored.contains(variable)) {
+					return false;
+				}
+				for (IrInstruction call : calls) {
+					if (summary.mayWrite(call, function, variable)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isInvariant(IrInstruction instruction, BitSet definedInLoop) {
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			Operand operand = instruction.getOperand(i);
+			if (operand.isRegister() && definedInLoop.get(operand.getRegister())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,85 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.IrProgram;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Variable;
+
+/**
+ * The variables every procedure of a program may write, directly or
+ * through the procedures it calls.
+ * <p>
+ * A variable is identified by the function owning its frame and its
+ * offset, whatever the activation: the summary tells whether some call may
+ * write a variable, not which frame it writes. The sets are computed by
+ * iterating over the calls until nothing changes, which also handles
+ * recursion.
+ */
+public class ModSummary {
+	private final Map<IrFunction, Integer> functionIndex = new HashMap<>();
+	private final Map<String, IrFunction> byLabel = new HashMap<>();
+	private final Map<IrFunction, Set<Long>> written = new HashMap<>();
+
+	public ModSummary(IrProgram program) {
+		List<IrFunction> functions = program.getFunctions();
+		for (int i = 0; i < functions.size(); i++) {
+			functionIndex.put(functions.get(i), i);
+			byLabel.put(functions.get(i).getLabel(), functions.get(i));
+		}
+		Map<IrFunction, Set<IrFunction>> callees = new HashMap<>();
+		for (IrFunction function : functions) {
+			Set<Long> stores = new HashSet<>();
+			Set<IrFunction> called = new HashSet<>();
+			for (BasicBlock block : function.getBlocks()) {
+				for (IrInstruction instruction : block.getInstructions()) {
+					if (instruction.getOpcode() == Opcode.STORE) {
+						stores.add(key(function, instruction.getVariable()));
+					} else if (instruction.getOpcode() == Opcode.CALL) {
+						called.add(byLabel.get(instruction.getProcedure()));
+					}
+				}
+			}
+			written.put(function, stores);
+			callees.put(function, called);
+		}
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (IrFunction function : functions) {
+				Set<Long> stores = written.get(function);
+				for (IrFunction callee : callees.get(function)) {
+					changed |= stores.addAll(written.get(callee));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param variable a variable as addressed from {@code function}
+	 */
+	private long key(IrFunction function, Variable variable) {
+		IrFunction owner = function;
+		for (int i = 0; i < variable.getLevelDelta(); i++) {
+			owner = owner.getParent();
+		}
+		return ((long) functionIndex.get(owner) << 32) | (variable.getOffset() & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param call a CALL instruction of {@code function}
+	 * @param variable a variable as addressed from {@code function}
+	 * @return true if the call may write the variable
+	 */
+	public boolean mayWrite(IrInstruction call, IrFunction function, Variable variable) {
+		return written.get(byLabel.get(call.getProcedure())).contains(key(function, variable));
+	}
+}
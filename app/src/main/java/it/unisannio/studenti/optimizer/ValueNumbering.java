@@ -0,0 +1,227 @@
+package it.unisannio.studenti.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unisannio.studenti.ir.BasicBlock;
+import it.unisannio.studenti.ir.Dominators;
+import it.unisannio.studenti.ir.IrFunction;
+import it.unisannio.studenti.ir.IrInstruction;
+import it.unisannio.studenti.ir.Opcode;
+import it.unisannio.studenti.ir.Operand;
+import it.unisannio.studenti.ir.Variable;
+
+/**
+ * Redundancy elimination on a function in SSA form.
+ * <ul>
+ * <li>Memory: a LOAD of a variable whose value is known, because the same
+ *     block (or the single predecessor chain leading to it) already loaded
+ *     or stored it, is replaced by that value. A CALL forgets every value,
+ *     since the callee may write any variable still in memory; READ and
+ *     WRITE do not touch variables.</li>
+ * <li>Expressions: dominator-based global value numbering. An instruction
+ *     computing the same operation on the same values as one dominating it
+ *     is replaced by the result of that one. Commutative operands are
+ *     ordered first; FRAME instructions with the same number of levels are
+ *     the same value, since a static link never changes.</li>
+ * </ul>
+ */
+public class ValueNumbering {
+	private int loadCount = 0;
+	private int expressionCount = 0;
+
+	/** The number of loads replaced by a known value. */
+	public int getLoadCount() {
+		return loadCount;
+	}
+
+	/** The number of instructions replaced by an equivalent dominating one. */
+	public int getExpressionCount() {
+		return expressionCount;
+	}
+
+	public void apply(IrFunction function) {
+		Operand[] replacement = new Operand[function.getRegisterCount()];
+		Dominators dominators = new Dominators(function);
+		forwardMemory(dominators, replacement);
+		numberExpressions(function, dominators, replacement);
+
+		for (BasicBlock block : function.getBlocks()) {
+			block.getInstructions().removeIf(instruction ->
+					instruction.hasResult() && replacement[instruction.getResult()] != null);
+			for (IrInstruction instruction : block.getInstructions()) {
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					instruction.setOperand(i, resolve(instruction.getOperand(i), replacement));
+				}
+			}
+		}
+	}
+
+	private void forwardMemory(Dominators dominators, Operand[] replacement) {
+		Map<BasicBlock, Map<Variable, Operand>> known = new HashMap<>();
+		for (BasicBlock block : dominators.getReversePostorder()) {
+			Map<Variable, Operand> values;
+			List<BasicBlock> predecessors = block.getPredecessors();
+			if (predecessors.size() == 1 && known.containsKey(predecessors.get(0))) {
+				values = new HashMap<>(known.get(predecessors.get(0)));
+			} else {
+				values = new HashMap<>();
+			}
+			for (IrInstruction instruction : block.getInstructions()) {
+				switch (instruction.getOpcode()) {
+					case LOAD: {
+						Operand value = values.get(instruction.getVariable());
+						if (value != null) {
+							replacement[instruction.getResult()] = value;
+							loadCount++;
+						} else {
+							values.put(instruction.getVariable(), Operand.register(instruction.getResult()));
+						}
+						break;
+					}
+					case STORE:
+						values.put(instruction.getVariable(), resolve(instruction.getOperand(0), replacement));
+						break;
+					case CALL:
+						values.clear();
+						break;
+					default:
+						break;
+				}
+			}
+			known.put(block, values);
+		}
+	}
+
+	/**
+	 * Walks the dominator tree with a table of the expressions available in
+	 * the current block, those computed by the blocks dominating it.
+	 */
+	private void numberExpressions(IrFunction function, Dominators dominators, Operand[] replacement) {
+		Map<Expression, Integer> available = new HashMap<>();
+		ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+		ArrayDeque<Integer> nextChild = new ArrayDeque<>();
+		ArrayDeque<List<Expression>> added = new ArrayDeque<>();
+		blocks.push(function.getEntry());
+		nextChild.push(-1);
+		while (!blocks.isEmpty()) {
+			BasicBlock block = blocks.peek();
+			int next = nextChild.pop();
+			if (next < 0) {
+				List<Expression> expressions = new ArrayList<>();
+				for (IrInstruction instruction : block.getInstructions()) {
+					if (!instruction.hasResult() || replacement[instruction.getResult()] != null) {
+						continue;
+					}
+					Expression expression = Expression.of(instruction, block, replacement);
+					if (expression == null) {
+						continue;
+					}
+					Integer existing = available.get(expression);
+					if (existing != null) {
+						replacement[instruction.getResult()] = Operand.register(existing);
+						expressionCount++;
+					} else {
+						available.put(expression, instruction.getResult());
+						expressions.add(expression);
+					}
+				}
+				added.push(expressions);
+				next = 0;
+			}
+			List<BasicBlock> children = dominators.getChildren(block);
+			if (next < children.size()) {
+				nextChild.push(next + 1);
+				blocks.push(children.get(next));
+				nextChild.push(-1);
+			} else {
+				blocks.pop();
+				for (Expression expression : added.pop()) {
+					available.remove(expression);
+				}
+			}
+		}
+	}
+
+	private static Operand resolve(Operand operand, Operand[] replacement) {
+		while (operand.isRegister() && replacement[operand.getRegister()] != null) {
+			operand = replacement[operand.getRegister()];
+		}
+		return operand;
+	}
+
+	/**
+	 * The operation computed by a pure instruction, as a hash key.
+	 */
+	private static final class Expression {
+		private final Opcode opcode;
+		private final int extra; // FRAME levels, or the block of a PHI
+		private final Operand[] operands;
+
+		private Expression(Opcode opcode, int extra, Operand[] operands) {
+			this.opcode = opcode;
+			this.extra = extra;
+			this.operands = operands;
+		}
+
+		/**
+		 * @return the key of the instruction, null if it cannot be numbered
+		 */
+		static Expression of(IrInstruction instruction, BasicBlock block, Operand[] replacement) {
+			Opcode opcode = instruction.getOpcode();
+			int extra = 0;
+			switch (opcode) {
+				case ADD:
+				case SUB:
+				case MUL:
+				case DIV: // Redundant when dominated: the first one traps in its place
+				case NEG:
+					break;
+				case FRAME:
+					extra = instruction.getLevels();
+					break;
+				case PHI:
+					extra = block.getId();
+					break;
+				default:
+					return null;
+			}
+			Operand[] operands = new Operand[instruction.getOperandCount()];
+			for (int i = 0; i < operands.length; i++) {
+				operands[i] = resolve(instruction.getOperand(i), replacement);
+			}
+			if ((opcode == Opcode.ADD || opcode == Opcode.MUL) && precedes(operands[1], operands[0])) {
+				Operand swap = operands[0];
+				operands[0] = operands[1];
+				operands[1] = swap;
+			}
+			return new Expression(opcode, extra, operands);
+		}
+
+		/** Registers before constants, each by number. */
+		private static boolean precedes(Operand a, Operand b) {
+			if (a.isRegister() != b.isRegister()) {
+				return a.isRegister();
+			}
+			return a.isRegister() ? a.getRegister() < b.getRegister() : a.getValue() < b.getValue();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Expression)) {
+				return false;
+			}
+			Expression other = (Expression) o;
+			return opcode == other.opcode && extra == other.extra && Arrays.equals(operands, other.operands);
+		}
+
+		@Override
+		public int hashCode() {
+			return (opcode.hashCode() * 31 + extra) * 31 + Arrays.hashCode(operands);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package it.unisannio.studenti.stats;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+
+/**
+ * Collects per-phase statistics for one compilation: wall time, bytes
+ * allocated by the compiling thread and phase specific counters
+ * (tokens, parse-tree nodes, symbols, emitted instructions, ...).
+ * The report can be printed as a table or written as JSON.
+ */
+public class CompilerStats {
+
+	/**
+	 * Measurements recorded for a single compiler phase.
+	 */
+	public static class Phase {
+		private final String name;
+		private long timeNanos;
+		private long allocatedBytes = -1;
+		private final Map<String, Long> counters = new LinkedHashMap<>();
+
+		Phase(String name) {
+			this.name = name;
+		}
+
+		public String getName() { return name; }
+		public long getTimeNanos() { return timeNanos; }
+		public long getAllocatedBytes() { return allocatedBytes; }
+		public Map<String, Long> getCounters() { return counters; }
+	}
+
+	private final List<Phase> phases = new ArrayList<>();
+	private Phase current;
+	private long startNanos;
+	private long startAllocated;
+
+	/**
+	 * Starts measuring a phase. A phase still running is closed first.
+	 */
+	public void begin(String phaseName) {
+		if (current != null) {
+			end();
+		}
+		current = new Phase(phaseName);
+		phases.add(current);
+		startAllocated = allocatedBytes();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring the current phase.
+	 */
+	public void end() {
+		if (current == null) {
+			return;
+		}
+		current.timeNanos = System.nanoTime() - startNanos;
+		long allocated = allocatedBytes();
+		if (allocated >= 0 && startAllocated >= 0) {
+			current.allocatedBytes = allocated - startAllocated;
+		}
+		current = null;
+	}
+
+	/**
+	 * Records a counter on the most recent phase.
+	 */
+	public void count(String counter, long value) {
+		if (phases.isEmpty()) {
+			return;
+		}
+		phases.get(phases.size() - 1).counters.put(counter, value);
+	}
+
+	public List<Phase> getPhases() {
+		return phases;
+	}
+
+	public long getTotalTimeNanos() {
+		long total = 0;
+		for (Phase phase : phases) total += phase.timeNanos;
+		return total;
+	}
+
+	public long getTotalAllocatedBytes() {
+		long total = 0;
+		for (Phase phase : phases) {
+			if (phase.allocatedBytes > 0) total += phase.allocatedBytes;
+		}
+		return total;
+	}
+
+	// --- Reporting ---
+
+	public void printTable(PrintStream out) {
+		out.println("\n--- Compiler Statistics ---");
+		out.printf("%-14s %12s %16s  %s%n", "Phase", "Time (ms)", "Allocated (KB)", "Counters");
+		for (Phase phase : phases) {
+			out.printf("%-14s %12.3f %16s  %s%n",
+					phase.name,
+					phase.timeNanos / 1_000_000.0,
+					phase.allocatedBytes < 0 ? "n/a" : String.valueOf(phase.allocatedBytes / 1024),
+					formatCounters(phase.counters));
+		}
+		out.printf("%-14s %12.3f %16d%n", "TOTAL", getTotalTimeNanos() / 1_000_000.0, getTotalAllocatedBytes() / 1024);
+		out.println("---------------------------");
+	}
+
+	public String toJson(String sourceFile) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n");
+		sb.append("  \"file\": \"").append(escape(sourceFile)).append("\",\n");
+		sb.append("  \"totalTimeNanos\": ").append(getTotalTimeNanos()).append(",\n");
+		sb.append("  \"totalAllocatedBytes\": ").append(getTotalAllocatedBytes()).append(",\n");
+		sb.append("  \"phases\": [\n");
+		for (int i = 0; i < phases.size(); i++) {
+			Phase phase = phases.get(i);
+			sb.append("    { \"name\": \"").append(phase.name).append("\"");
+			sb.append(", \"timeNanos\": ").append(phase.timeNanos);
+			sb.append(", \"allocatedBytes\": ").append(phase.allocatedBytes);
+			sb.append(", \"counters\": {");
+			int c = 0;
+			for (Map.Entry<String, Long> entry : phase.counters.entrySet()) {
+				if (c++ > 0) sb.append(",");
+				sb.append(" \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+			}
+			sb.append(c > 0 ? " }" : "}").append(" }");
+			if (i < phases.size() - 1) sb.append(",");
+			sb.append("\n");
+		}
+		sb.append("  ]\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	public void writeJson(String sourceFile, Path output) throws IOException {
+		Files.write(output, toJson(sourceFile).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Counts every node (rules and terminals) of a parse tree without recursion.
+	 */
+	public static long countParseTreeNodes(ParseTree tree) {
+		long count = 0;
+		ArrayDeque<ParseTree> stack = new ArrayDeque<>();
+		stack.push(tree);
+		while (!stack.isEmpty()) {
+			ParseTree node = stack.pop();
+			count++;
+			for (int i = 0; i < node.getChildCount(); i++) {
+				stack.push(node.getChild(i));
+			}
+		}
+		return count;
+	}
+
+	private static String formatCounters(Map<String, Long> counters) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> entry : counters.entrySet()) {
+			if (sb.length() > 0) sb.append(", ");
+			sb.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return sb.toString();
+	}
+
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * Bytes allocated so far by the current thread, or -1 when the JVM
+	 * does not expose per-thread allocation counters.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getCurrentThreadAllocatedBytes();
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,80 @@
+package it.unisannio.studenti.symbolTable;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier names to dense int IDs (0, 1, 2, ...) in order of first
+ * appearance, so that one String instance exists per distinct name and the
+ * symbol table can work on ints instead of hashing Strings.
+ */
+public class Identifiers {
+    private String[] names = new String[64];
+    private int[] table = new int[128]; // Open addressing: ID + 1, 0 = empty
+    private int size = 0;
+
+    /**
+     * @return the ID of the name, assigning the next free ID to a new name
+     */
+    public int intern(String name) {
+        int mask = table.length - 1;
+        int h = hash(name) & mask;
+        while (table[h] != 0) {
+            int id = table[h] - 1;
+            if (names[id].equals(name)) {
+                return id;
+            }
+            h = (h + 1) & mask;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        table[h] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @return the ID of the name, or -1 if it has never been interned
+     */
+    public int find(String name) {
+        int mask = table.length - 1;
+        int h = hash(name) & mask;
+        while (table[h] != 0) {
+            int id = table[h] - 1;
+            if (names[id].equals(name)) {
+                return id;
+            }
+            h = (h + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int h = hash(names[id]) & mask;
+            while (table[h] != 0) {
+                h = (h + 1) & mask;
+            }
+            table[h] = id + 1;
+        }
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,24 @@
+package it.unisannio.studenti.symbolTable;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Identifier token carrying the ID of its name in an {@link Identifiers} table.
+ */
+public class InternedToken extends CommonToken {
+    private static final long serialVersionUID = 1L;
+
+    private final int nameId;
+
+    public InternedToken(Pair<TokenSource, CharStream> source, int type, int channel, int start, int stop, int nameId) {
+        super(source, type, channel, start, stop);
+        this.nameId = nameId;
+    }
+
+    public int getNameId() {
+        return nameId;
+    }
+}
@@ -0,0 +1,52 @@
+package it.unisannio.studenti.symbolTable;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Lexer token factory interning identifiers while lexing: identifier tokens
+ * are {@link InternedToken}s whose text is the shared interned String.
+ * Install with {@code lexer.setTokenFactory(...)}; the same {@link Identifiers}
+ * must then be given to the {@link SymbolTable}.
+ */
+public class InterningTokenFactory implements TokenFactory<CommonToken> {
+    private final Identifiers identifiers;
+    private final int identifierType;
+
+    /**
+     * @param identifierType token type of identifiers in the lexer
+     */
+    public InterningTokenFactory(Identifiers identifiers, int identifierType) {
+        this.identifiers = identifiers;
+        this.identifierType = identifierType;
+    }
+
+    @Override
+    public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text,
+            int channel, int start, int stop, int line, int charPositionInLine) {
+        CommonToken token;
+        if (type == identifierType) {
+            String name = text != null ? text : source.b.getText(Interval.of(start, stop));
+            int id = identifiers.intern(name);
+            token = new InternedToken(source, type, channel, start, stop, id);
+            token.setText(identifiers.name(id));
+        } else {
+            token = new CommonToken(source, type, channel, start, stop);
+            if (text != null) {
+                token.setText(text);
+            }
+        }
+        token.setLine(line);
+        token.setCharPositionInLine(charPositionInLine);
+        return token;
+    }
+
+    @Override
+    public CommonToken create(int type, String text) {
+        return new CommonToken(type, text);
+    }
+}
@@ -0,0 +1,84 @@
+package it.unisannio.studenti.symbolTable;
+
+/**
+ * Storage of a symbol as seen from one use site, computed once during name
+ * resolution so that code generation needs no lookups:
+ * a constant is its value, a variable is a frame offset in the frame found
+ * {@code levelDelta} static links up, a procedure is called with the frame
+ * {@code levelDelta} static links up as its static link.
+ */
+public class Slot {
+    private final Symbol symbol;
+    private final SymbolKind kind;
+    private final int levelDelta;
+    private final int offset;
+    private final int value;
+
+    /**
+     * @param useLevel nesting level of the block containing the use
+     */
+    public Slot(Symbol symbol, int useLevel) {
+        this.symbol = symbol;
+        this.kind = symbol.getKind();
+        this.levelDelta = useLevel - symbol.getNestingLevel();
+        this.offset = symbol.getOffset();
+        this.value = symbol.getValue() != null ? symbol.getValue() : 0;
+    }
+
+    private Slot(Slot slot, int levelDelta, int offset) {
+        this.symbol = slot.symbol;
+        this.kind = slot.kind;
+        this.levelDelta = levelDelta;
+        this.offset = offset;
+        this.value = slot.value;
+    }
+
+    /**
+     * @return the same symbol stored elsewhere, e.g. once the code using it
+     *         has been moved to another procedure by inlining
+     */
+    public Slot relocate(int levelDelta, int offset) {
+        return new Slot(this, levelDelta, offset);
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public SymbolKind getKind() {
+        return kind;
+    }
+
+    public boolean isConstant() {
+        return kind == SymbolKind.CONST;
+    }
+
+    /**
+     * @return the number of static links to follow from the current frame
+     */
+    public int getLevelDelta() {
+        return levelDelta;
+    }
+
+    /**
+     * @return the offset of a variable from its frame pointer
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the value of a constant
+     */
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        if (isConstant()) {
+            return symbol.getName() + " = " + value;
+        }
+        return symbol.getName() + " @ " + offset + " [" + levelDelta + " up]";
+    }
+}
@@ -1,59 +1,70 @@
 package it.unisannio.studenti.symbolTable;
 
-public class Symbol {
-    private String name;
-    private SymbolKind kind;
-    // For constants, we might want to store the value.
-    // For procedures, we might want to store parameter count (though PL/0 usually has 0).
-    // For now, we'll keep it simple but extensible.
-    private Integer value; // Null if not a constant or not known
-    private int nestingLevel;
-    private int offset; // For variables: offset from FP. For procedures: maybe not needed or entry address?
+/**
+ * View of one symbol of a {@link SymbolTable}, whose data is stored in the
+ * table's parallel arrays. Views of the same symbol are equal.
+ */
+public final class Symbol {
+    private final SymbolTable table;
+    private final int index;
 
-    public Symbol(String name, SymbolKind kind) {
-        this.name = name;
-        this.kind = kind;
+    Symbol(SymbolTable table, int index) {
+        this.table = table;
+        this.index = index;
     }
 
-    public Symbol(String name, SymbolKind kind, Integer value) {
-        this.name = name;
-        this.kind = kind;
-        this.value = value;
+    /**
+     * @return the dense index of the symbol in its table (0 .. symbolCount-1)
+     */
+    public int getIndex() {
+        return index;
     }
 
-    public void setNestingLevel(int nestingLevel) {
-        this.nestingLevel = nestingLevel;
+    public String getName() {
+        return table.nameOf(index);
     }
 
-    public int getNestingLevel() {
-        return nestingLevel;
+    public int getNameId() {
+        return table.nameIdOf(index);
     }
 
-    public void setOffset(int offset) {
-        this.offset = offset;
+    public SymbolKind getKind() {
+        return table.kindOf(index);
     }
 
-    public int getOffset() {
-        return offset;
+    /**
+     * @return the value of a constant, null for other kinds
+     */
+    public Integer getValue() {
+        return getKind() == SymbolKind.CONST ? table.valueOf(index) : null;
     }
 
-    public String getName() {
-        return name;
+    public int getNestingLevel() {
+        return table.levelOf(index);
     }
 
-    public SymbolKind getKind() {
-        return kind;
+    /**
+     * @return for variables, the offset from the frame pointer
+     */
+    public int getOffset() {
+        return table.offsetOf(index);
     }
 
-    public Integer getValue() {
-        return value;
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Symbol && ((Symbol) o).table == table && ((Symbol) o).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
     }
 
     @Override
     public String toString() {
-        if (value != null) {
-            return String.format("%s (%s, value=%d)", name, kind, value);
+        if (getKind() == SymbolKind.CONST) {
+            return String.format("%s (%s, value=%d)", getName(), getKind(), getValue());
         }
-        return String.format("%s (%s)", name, kind);
+        return String.format("%s (%s)", getName(), getKind());
     }
 }
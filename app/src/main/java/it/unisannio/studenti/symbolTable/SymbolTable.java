@@ -1,98 +1,144 @@
 package it.unisannio.studenti.symbolTable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.PrintStream;
+import java.util.Arrays;
 
 /**
  * Manages the symbol table for the PL/0 language, supporting block-structured
  * scoping necessary for procedure declarations.
+ * <p>
+ * Identifiers are interned to int IDs by an {@link Identifiers} table. Scopes
+ * and symbols are numbered densely and their data kept in parallel primitive
+ * arrays; a single open-addressing table maps (scope, name ID) to a symbol
+ * for all scopes, so no per-scope map or per-symbol object is allocated.
+ * {@link Symbol} objects are only views over these arrays.
  */
 public class SymbolTable {
+    private static final SymbolKind[] KINDS = SymbolKind.values();
+    private static final int FIRST_OFFSET = -16; // Local variables start at rbp-16 (rbp-8 is static link)
+    private static final int NONE = -1;
 
-    private static class Scope {
-        final int id;
-        final Scope parent;
-        final List<Scope> children = new ArrayList<>();
-        final Map<String, Symbol> symbols = new HashMap<>();
-        int nextChildIndex = 0; // For traversal during semantic analysis
-        int nestingLevel;
-        int currentOffset = -16; // Start local variables at rbp-16 (rbp-8 is static link)
-
-        Scope(int id, Scope parent, int nestingLevel) {
-            this.id = id;
-            this.parent = parent;
-            this.nestingLevel = nestingLevel;
-        }
-    }
+    private final Identifiers identifiers;
+    private final PrintStream err;
+
+    // Scopes, indexed by scope ID (0 = global scope)
+    private int[] scopeParent = new int[16];
+    private int[] scopeLevel = new int[16];
+    private int[] scopeNextOffset = new int[16];
+    private int[] scopeFirstChild = new int[16];
+    private int[] scopeLastChild = new int[16];
+    private int[] scopeNextSibling = new int[16];
+    private int[] scopeFirstSymbol = new int[16];
+    private int[] scopeLastSymbol = new int[16];
+    private int scopeCount = 0;
+    private int currentScope;
 
-    private Scope root;
-    private Scope currentScope;
-    private int scopeCounter = 0;
+    // Symbols, indexed by symbol index in declaration order
+    private int[] symbolName = new int[64];
+    private int[] symbolScope = new int[64];
+    private byte[] symbolKind = new byte[64];
+    private int[] symbolOffset = new int[64];
+    private int[] symbolValue = new int[64];
+    private int[] symbolNextInScope = new int[64];
+    private int symbolCount = 0;
+
+    // (scope, name ID) -> symbol index + 1, 0 = empty
+    private int[] table = new int[128];
 
     public SymbolTable() {
-        // Initialize with Global Scope
-        this.root = new Scope(scopeCounter++, null, 0);
-        this.currentScope = root;
+        this(System.err);
     }
 
-    // --- Scope Management ---
+    /**
+     * @param err stream receiving declaration and scope errors
+     */
+    public SymbolTable(PrintStream err) {
+        this(new Identifiers(), err);
+    }
 
     /**
-     * Enters a new, empty scope (used during Symbol Table Construction).
+     * @param identifiers the interned names, shared with the lexer
+     * @param err stream receiving declaration and scope errors
      */
-    public void enterNewScope() {
-        Scope newScope = new Scope(scopeCounter++, currentScope, currentScope.nestingLevel + 1);
-        currentScope.children.add(newScope);
-        currentScope = newScope;
+    public SymbolTable(Identifiers identifiers, PrintStream err) {
+        this.identifiers = identifiers;
+        this.err = err;
+        // Initialize with Global Scope
+        this.currentScope = newScope(NONE);
     }
 
+    public Identifiers getIdentifiers() {
+        return identifiers;
+    }
+
+    // --- Scope Management ---
+
     /**
-     * Enters the next child scope (used during Semantic Analysis).
+     * Enters a new, empty scope, child of the current one.
      */
-    public void enterNextChildScope() {
-        if (currentScope.nextChildIndex < currentScope.children.size()) {
-            currentScope = currentScope.children.get(currentScope.nextChildIndex++);
-        } else {
-            System.err.println("Error: No more child scopes to enter.");
-        }
+    public void enterNewScope() {
+        currentScope = newScope(currentScope);
     }
 
     /**
      * Exits the current scope, making the previous scope the current one.
      */
     public void exitScope() {
-        if (currentScope.parent != null) {
-            currentScope = currentScope.parent;
+        if (scopeParent[currentScope] != NONE) {
+            currentScope = scopeParent[currentScope];
         } else {
-            System.err.println("Error: Cannot exit the global scope.");
+            err.println("Error: Cannot exit the global scope.");
         }
     }
 
-    /**
-     * Resets the symbol table traversal state for the second pass.
-     */
-    public void reset() {
-        this.currentScope = root;
-        resetIterators(root);
-    }
-
-    private void resetIterators(Scope scope) {
-        scope.nextChildIndex = 0;
-        for (Scope child : scope.children) {
-            resetIterators(child);
+    private int newScope(int parent) {
+        if (scopeCount == scopeParent.length) {
+            int capacity = scopeCount * 2;
+            scopeParent = Arrays.copyOf(scopeParent, capacity);
+            scopeLevel = Arrays.copyOf(scopeLevel, capacity);
+            scopeNextOffset = Arrays.copyOf(scopeNextOffset, capacity);
+            scopeFirstChild = Arrays.copyOf(scopeFirstChild, capacity);
+            scopeLastChild = Arrays.copyOf(scopeLastChild, capacity);
+            scopeNextSibling = Arrays.copyOf(scopeNextSibling, capacity);
+            scopeFirstSymbol = Arrays.copyOf(scopeFirstSymbol, capacity);
+            scopeLastSymbol = Arrays.copyOf(scopeLastSymbol, capacity);
         }
+        int scope = scopeCount++;
+        scopeParent[scope] = parent;
+        scopeLevel[scope] = parent == NONE ? 0 : scopeLevel[parent] + 1;
+        scopeNextOffset[scope] = FIRST_OFFSET;
+        scopeFirstChild[scope] = NONE;
+        scopeLastChild[scope] = NONE;
+        scopeNextSibling[scope] = NONE;
+        scopeFirstSymbol[scope] = NONE;
+        scopeLastSymbol[scope] = NONE;
+        if (parent != NONE) {
+            if (scopeLastChild[parent] == NONE) {
+                scopeFirstChild[parent] = scope;
+            } else {
+                scopeNextSibling[scopeLastChild[parent]] = scope;
+            }
+            scopeLastChild[parent] = scope;
+        }
+        return scope;
     }
 
     public int getLocalsSize() {
         // Initial offset is -16.
-        // Size = (-currentScope.currentOffset) - 16
-        return (-currentScope.currentOffset) - 16;
+        // Size = (-nextOffset) - 16
+        return (-scopeNextOffset[currentScope]) + FIRST_OFFSET;
     }
 
     public int getCurrentNestingLevel() {
-        return currentScope.nestingLevel;
+        return scopeLevel[currentScope];
+    }
+
+    public int getScopeCount() {
+        return scopeCount;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
     }
 
     // --- Symbol Declaration and Lookup ---
@@ -102,28 +148,85 @@ public class SymbolTable {
     }
 
     public boolean addSymbol(String id, SymbolKind kind, Integer value) {
-        if (currentScope.symbols.containsKey(id)) {
-            System.err.println("Semantic Error: Identifier '" + id + "' already declared in the current scope.");
-            return false;
-        } else {
-            Symbol symbol = new Symbol(id, kind, value);
-            symbol.setNestingLevel(currentScope.nestingLevel);
-            if (kind == SymbolKind.VAR) {
-                symbol.setOffset(currentScope.currentOffset);
-                currentScope.currentOffset -= 8;
+        return declare(identifiers.intern(id), kind, value) != null;
+    }
+
+    public Symbol declare(String id, SymbolKind kind, Integer value) {
+        return declare(identifiers.intern(id), kind, value);
+    }
+
+    /**
+     * Declares a symbol in the current scope.
+     * @param nameId the interned name
+     * @return the new symbol, or null if the identifier is already declared in the current scope
+     */
+    public Symbol declare(int nameId, SymbolKind kind, Integer value) {
+        int mask = table.length - 1;
+        int h = hash(currentScope, nameId) & mask;
+        while (table[h] != 0) {
+            int symbol = table[h] - 1;
+            if (symbolScope[symbol] == currentScope && symbolName[symbol] == nameId) {
+                err.println("Semantic Error: Identifier '" + identifiers.name(nameId) + "' already declared in the current scope.");
+                return null;
             }
-            currentScope.symbols.put(id, symbol);
-            return true;
+            h = (h + 1) & mask;
         }
+
+        if (symbolCount == symbolName.length) {
+            int capacity = symbolCount * 2;
+            symbolName = Arrays.copyOf(symbolName, capacity);
+            symbolScope = Arrays.copyOf(symbolScope, capacity);
+            symbolKind = Arrays.copyOf(symbolKind, capacity);
+            symbolOffset = Arrays.copyOf(symbolOffset, capacity);
+            symbolValue = Arrays.copyOf(symbolValue, capacity);
+            symbolNextInScope = Arrays.copyOf(symbolNextInScope, capacity);
+        }
+        int symbol = symbolCount++;
+        symbolName[symbol] = nameId;
+        symbolScope[symbol] = currentScope;
+        symbolKind[symbol] = (byte) kind.ordinal();
+        symbolValue[symbol] = value != null ? value : 0;
+        symbolOffset[symbol] = 0;
+        if (kind == SymbolKind.VAR) {
+            symbolOffset[symbol] = scopeNextOffset[currentScope];
+            scopeNextOffset[currentScope] -= 8;
+        }
+        symbolNextInScope[symbol] = NONE;
+        if (scopeLastSymbol[currentScope] == NONE) {
+            scopeFirstSymbol[currentScope] = symbol;
+        } else {
+            symbolNextInScope[scopeLastSymbol[currentScope]] = symbol;
+        }
+        scopeLastSymbol[currentScope] = symbol;
+
+        table[h] = symbol + 1;
+        if (symbolCount * 2 > table.length) {
+            rehash();
+        }
+        return new Symbol(this, symbol);
     }
 
     public Symbol lookup(String id) {
-        Scope scope = currentScope;
-        while (scope != null) {
-            if (scope.symbols.containsKey(id)) {
-                return scope.symbols.get(id);
+        int nameId = identifiers.find(id);
+        return nameId < 0 ? null : lookup(nameId);
+    }
+
+    /**
+     * Finds the declaration visible from the current scope.
+     * @param nameId the interned name
+     * @return the symbol, or null if the name is not declared
+     */
+    public Symbol lookup(int nameId) {
+        int mask = table.length - 1;
+        for (int scope = currentScope; scope != NONE; scope = scopeParent[scope]) {
+            int h = hash(scope, nameId) & mask;
+            while (table[h] != 0) {
+                int symbol = table[h] - 1;
+                if (symbolScope[symbol] == scope && symbolName[symbol] == nameId) {
+                    return new Symbol(this, symbol);
+                }
+                h = (h + 1) & mask;
             }
-            scope = scope.parent;
         }
         return null;
     }
@@ -132,28 +235,75 @@ public class SymbolTable {
         return lookup(id) != null;
     }
 
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            int h = hash(symbolScope[symbol], symbolName[symbol]) & mask;
+            while (table[h] != 0) {
+                h = (h + 1) & mask;
+            }
+            table[h] = symbol + 1;
+        }
+    }
+
+    private static int hash(int scope, int nameId) {
+        int h = (scope * 0x9E3779B9) ^ (nameId * 0x85EBCA6B);
+        return h ^ (h >>> 15);
+    }
+
+    // --- Symbol data, read through Symbol views ---
+
+    String nameOf(int symbol) {
+        return identifiers.name(symbolName[symbol]);
+    }
+
+    int nameIdOf(int symbol) {
+        return symbolName[symbol];
+    }
+
+    SymbolKind kindOf(int symbol) {
+        return KINDS[symbolKind[symbol]];
+    }
+
+    int valueOf(int symbol) {
+        return symbolValue[symbol];
+    }
+
+    int levelOf(int symbol) {
+        return scopeLevel[symbolScope[symbol]];
+    }
+
+    int offsetOf(int symbol) {
+        return symbolOffset[symbol];
+    }
+
     // --- Utility and Debugging ---
 
     public void printTable() {
-        System.out.println("\n--- Symbol Table (PL/0) ---");
-        printScope(root);
-        System.out.println("---------------------------\n");
+        printTable(System.out);
     }
 
-    private void printScope(Scope scope) {
-        String scopeName = (scope.parent == null) ? "GLOBAL (Scope " + scope.id + ")" : "Procedure/Block (Scope " + scope.id + ")";
-        System.out.println("\n" + scopeName + ":");
-        
-        if (scope.symbols.isEmpty()) {
-            System.out.println("  (Empty)");
+    public void printTable(PrintStream out) {
+        out.println("\n--- Symbol Table (PL/0) ---");
+        printScope(0, out);
+        out.println("---------------------------\n");
+    }
+
+    private void printScope(int scope, PrintStream out) {
+        String scopeName = (scopeParent[scope] == NONE) ? "GLOBAL (Scope " + scope + ")" : "Procedure/Block (Scope " + scope + ")";
+        out.println("\n" + scopeName + ":");
+
+        if (scopeFirstSymbol[scope] == NONE) {
+            out.println("  (Empty)");
         } else {
-            scope.symbols.forEach((key, symbol) -> 
-                System.out.printf("  %-10s : %s%n", key, symbol)
-            );
+            for (int symbol = scopeFirstSymbol[scope]; symbol != NONE; symbol = symbolNextInScope[symbol]) {
+                out.printf("  %-10s : %s%n", nameOf(symbol), new Symbol(this, symbol));
+            }
         }
 
-        for (Scope child : scope.children) {
-            printScope(child);
+        for (int child = scopeFirstChild[scope]; child != NONE; child = scopeNextSibling[child]) {
+            printScope(child, out);
         }
     }
 }
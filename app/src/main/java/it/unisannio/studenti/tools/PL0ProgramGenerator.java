@@ -0,0 +1,472 @@
+package it.unisannio.studenti.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random, semantically valid PL/0 programs of configurable size and shape,
+ * used to stress the compiler on inputs much larger than the ones in {@code examples/}.
+ * <p>
+ * Every construct of {@code PL0.g4} is produced (constants, variables, nested procedures,
+ * all statement forms including the read/write shorthands, odd and relational conditions,
+ * unary signs and parenthesised expressions). The program is streamed to the output while
+ * it is generated, so sizes of tens of MB need no more memory than small ones.
+ * <p>
+ * The generated programs also terminate when executed:
+ * <ul>
+ *   <li>every identifier is unique, so there is no shadowing and procedure labels never clash;</li>
+ *   <li>loops are counted ({@code while c < N}) on a counter that only the loop writes;</li>
+ *   <li>a procedure only calls procedures completed before it (its children and the earlier
+ *       siblings of itself and of its ancestors), so the call graph is acyclic, and every call
+ *       is guarded by a global {@code fuel} counter that bounds the total number of calls;</li>
+ *   <li>divisors are always non-zero constants.</li>
+ * </ul>
+ */
+public class PL0ProgramGenerator {
+
+    /** Settings of the generator, filled from the command line. */
+    public static class Options {
+        public long size = 64 * 1024;
+        public int depth = 3;
+        public int fanout = 2;
+        public int exprDepth = 3;
+        public int loopDepth = 2;
+        public int idents = 4;
+        public int statements = 6;
+        public int maxIterations = 3;
+        public int fuel = 100000;
+        public boolean reads = true;
+        public long seed = 1;
+    }
+
+    /** Identifiers declared by one block. */
+    private static class Scope {
+        final List<String> consts = new ArrayList<>();
+        final List<String> vars = new ArrayList<>();
+        final List<String> counters = new ArrayList<>();
+        final List<String> completedProcs = new ArrayList<>();
+    }
+
+    private final Options options;
+    private final Writer out;
+    private final Random random;
+    private final List<Scope> scopes = new ArrayList<>();
+    private long written = 0;
+    private int nameCounter = 0;
+
+    public PL0ProgramGenerator(Options options, Writer out) {
+        this.options = options;
+        this.out = out;
+        this.random = new Random(options.seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options();
+        String outputPath = null;
+        for (String arg : args) {
+            if (arg.startsWith("--size=")) options.size = parseSize(value(arg));
+            else if (arg.startsWith("--depth=")) options.depth = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--fanout=")) options.fanout = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--expr-depth=")) options.exprDepth = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--loop-depth=")) options.loopDepth = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--idents=")) options.idents = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--statements=")) options.statements = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--iterations=")) options.maxIterations = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--fuel=")) options.fuel = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--seed=")) options.seed = Long.parseLong(value(arg));
+            else if (arg.equals("--no-read")) options.reads = false;
+            else if (arg.startsWith("--")) {
+                System.err.println("Unknown option: " + arg);
+                printUsage();
+                System.exit(2);
+            } else {
+                outputPath = arg;
+            }
+        }
+
+        Writer writer = outputPath == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16)
+                : Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.US_ASCII);
+        try {
+            new PL0ProgramGenerator(options, writer).generate();
+        } finally {
+            writer.close();
+        }
+        if (outputPath != null) {
+            System.err.println("Generated PL/0 program written to: " + outputPath);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java PL0ProgramGenerator [options] [<output_file>]");
+        System.err.println("  --size=<n>[k|m]     approximate program size in bytes (default 64k)");
+        System.err.println("  --depth=<n>         maximum procedure nesting depth (default 3)");
+        System.err.println("  --fanout=<n>        maximum procedures declared per procedure block (default 2)");
+        System.err.println("  --expr-depth=<n>    maximum parenthesis nesting in expressions (default 3)");
+        System.err.println("  --loop-depth=<n>    maximum while-loop nesting (default 2)");
+        System.err.println("  --idents=<n>        constants and variables declared per block (default 4)");
+        System.err.println("  --statements=<n>    statements per block body (default 6)");
+        System.err.println("  --iterations=<n>    maximum iterations of each loop (default 3)");
+        System.err.println("  --fuel=<n>          maximum number of procedure calls at run time (default 100000)");
+        System.err.println("  --seed=<n>          random seed (default 1)");
+        System.err.println("  --no-read           do not generate read statements");
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static long parseSize(String text) {
+        String lower = text.toLowerCase();
+        if (lower.endsWith("k")) return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1024;
+        if (lower.endsWith("m")) return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1024 * 1024;
+        return Long.parseLong(lower);
+    }
+
+    // --- Program structure ---
+
+    public void generate() throws IOException {
+        Scope global = new Scope();
+        scopes.add(global);
+        global.vars.add("fuel");
+
+        declarations(global, 0);
+
+        // Top-level procedures until the size budget is used
+        while (written < options.size) {
+            procedure(1);
+        }
+
+        keyword("begin");
+        newline();
+        indent(1);
+        write("fuel := " + options.fuel + ";");
+        newline();
+        body(global, 1);
+        keyword("end");
+        write(".");
+        newline();
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private void procedure(int depth) throws IOException {
+        String name = newName("p");
+        indent(depth - 1);
+        keyword("procedure");
+        write(" " + name + ";");
+        newline();
+
+        Scope scope = new Scope();
+        scopes.add(scope);
+        declarations(scope, depth);
+        if (depth < options.depth) {
+            int children = 1 + random.nextInt(Math.max(1, options.fanout));
+            for (int i = 0; i < children && (i == 0 || written < options.size); i++) {
+                procedure(depth + 1);
+            }
+        }
+        indent(depth);
+        keyword("begin");
+        newline();
+        body(scope, depth + 1);
+        indent(depth);
+        keyword("end");
+        write(";");
+        newline();
+        scopes.remove(scopes.size() - 1);
+
+        scopes.get(scopes.size() - 1).completedProcs.add(name);
+    }
+
+    private void declarations(Scope scope, int depth) throws IOException {
+        int constCount = 1 + random.nextInt(Math.max(1, options.idents / 2));
+        indent(depth);
+        keyword("const");
+        for (int i = 0; i < constCount; i++) {
+            String name = newName("k");
+            int value = 1 + random.nextInt(100);
+            scope.consts.add(name);
+            write((i == 0 ? " " : ", ") + name + " = " + value);
+        }
+        write(";");
+        newline();
+
+        int varCount = Math.max(1, options.idents - constCount);
+        for (int i = 0; i < varCount; i++) {
+            scope.vars.add(newName("v"));
+        }
+        for (int i = 0; i < options.loopDepth; i++) {
+            scope.counters.add(newName("c"));
+        }
+        indent(depth);
+        keyword("var");
+        List<String> declared = new ArrayList<>(scope.vars);
+        declared.addAll(scope.counters);
+        for (int i = 0; i < declared.size(); i++) {
+            write((i == 0 ? " " : ", ") + declared.get(i));
+        }
+        write(";");
+        newline();
+    }
+
+    /**
+     * Emits the statements of a block body. The block's own variables and loop
+     * counters are initialised first so that every read of them is well defined;
+     * the body ends by calling the procedures the block declares (and, in the main
+     * program, by writing the global variables).
+     */
+    private void body(Scope scope, int level) throws IOException {
+        List<String> statements = new ArrayList<>();
+        for (String var : scope.vars) {
+            if (!var.equals("fuel")) {
+                statements.add(var + " := " + random.nextInt(50));
+            }
+        }
+        for (String counter : scope.counters) {
+            statements.add(counter + " := 0");
+        }
+        int count = Math.max(1, options.statements);
+        for (int i = 0; i < count; i++) {
+            statements.add(statement(0, 2));
+        }
+        // Run every procedure declared by this block at least once
+        for (String proc : scope.completedProcs) {
+            statements.add(guardedCall(proc));
+        }
+        if (scopes.size() == 1) {
+            statements.add(keywordText("write") + "(" + String.join(", ", scope.vars) + ")");
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            indent(level);
+            write(statements.get(i));
+            if (i < statements.size() - 1) write(";");
+            newline();
+        }
+    }
+
+    // --- Statements ---
+
+    private String statement(int loopNesting, int compoundDepth) {
+        int choice = random.nextInt(compoundDepth > 0 ? 10 : 6);
+        switch (choice) {
+            case 0:
+            case 1:
+                return assignment();
+            case 2:
+                return write();
+            case 3:
+                return options.reads ? read() : assignment();
+            case 4:
+                return call();
+            case 5:
+                return "";
+            case 6:
+                return begin(loopNesting, compoundDepth - 1);
+            case 7:
+            case 8:
+                return ifStatement(loopNesting, compoundDepth - 1);
+            default:
+                if (loopNesting < options.loopDepth) {
+                    return whileStatement(loopNesting, compoundDepth - 1);
+                }
+                return assignment();
+        }
+    }
+
+    private String assignment() {
+        return pick(assignableVars()) + " := " + expression(options.exprDepth);
+    }
+
+    private String call() {
+        List<String> callable = new ArrayList<>();
+        for (Scope scope : scopes) callable.addAll(scope.completedProcs);
+        if (callable.isEmpty()) {
+            return assignment();
+        }
+        return guardedCall(pick(callable));
+    }
+
+    private String guardedCall(String proc) {
+        return keywordText("if") + " fuel > 0 " + keywordText("then") + " " + keywordText("begin")
+                + " fuel := fuel - 1; " + keywordText("call") + " " + proc + " " + keywordText("end");
+    }
+
+    private String begin(int loopNesting, int compoundDepth) {
+        StringBuilder sb = new StringBuilder(keywordText("begin"));
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? " " : "; ").append(statement(loopNesting, compoundDepth));
+        }
+        return sb.append(" ").append(keywordText("end")).toString();
+    }
+
+    private String ifStatement(int loopNesting, int compoundDepth) {
+        StringBuilder sb = new StringBuilder(keywordText("if"));
+        sb.append(" ").append(condition()).append(" ").append(keywordText("then")).append(" ");
+        sb.append(statement(loopNesting, compoundDepth));
+        if (random.nextBoolean()) {
+            sb.append(" ").append(keywordText("else")).append(" ").append(statement(loopNesting, compoundDepth));
+        }
+        return sb.toString();
+    }
+
+    private String whileStatement(int loopNesting, int compoundDepth) {
+        String counter = scopes.get(scopes.size() - 1).counters.get(loopNesting);
+        int iterations = 1 + random.nextInt(Math.max(1, options.maxIterations));
+        return keywordText("begin") + " " + counter + " := 0; "
+                + keywordText("while") + " " + counter + " < " + iterations + " " + keywordText("do") + " "
+                + keywordText("begin") + " " + statement(loopNesting + 1, compoundDepth) + "; "
+                + counter + " := " + counter + " + 1 " + keywordText("end") + " "
+                + keywordText("end");
+    }
+
+    private String read() {
+        List<String> vars = assignableVars();
+        int count = 1 + random.nextInt(2);
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) list.append(", ");
+            list.append(pick(vars));
+        }
+        switch (random.nextInt(3)) {
+            case 0: return keywordText("read") + "(" + list + ")";
+            case 1: return keywordText("read") + " " + list;
+            default: return "? " + list;
+        }
+    }
+
+    private String write() {
+        int count = 1 + random.nextInt(2);
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) list.append(", ");
+            list.append(expression(options.exprDepth));
+        }
+        switch (random.nextInt(3)) {
+            case 0: return keywordText("write") + "(" + list + ")";
+            case 1: return keywordText("write") + " " + list;
+            default: return "! " + list;
+        }
+    }
+
+    // --- Conditions and expressions ---
+
+    private static final String[] RELATIONS = {"=", "#", "<", "<=", ">", ">="};
+
+    private String condition() {
+        if (random.nextInt(4) == 0) {
+            return keywordText("odd") + " " + expression(options.exprDepth);
+        }
+        return expression(options.exprDepth) + " " + RELATIONS[random.nextInt(RELATIONS.length)] + " " + expression(options.exprDepth);
+    }
+
+    private String expression(int depth) {
+        StringBuilder sb = new StringBuilder();
+        int sign = random.nextInt(6);
+        if (sign == 0) sb.append("-");
+        else if (sign == 1) sb.append("+");
+        sb.append(term(depth));
+        int terms = random.nextInt(3);
+        for (int i = 0; i < terms; i++) {
+            sb.append(random.nextBoolean() ? " + " : " - ").append(term(depth));
+        }
+        return sb.toString();
+    }
+
+    private String term(int depth) {
+        StringBuilder sb = new StringBuilder(factor(depth));
+        int factors = random.nextInt(3);
+        for (int i = 0; i < factors; i++) {
+            if (random.nextBoolean()) {
+                sb.append(" * ").append(factor(depth));
+            } else {
+                sb.append(" / ").append(divisor());
+            }
+        }
+        return sb.toString();
+    }
+
+    private String factor(int depth) {
+        int choice = random.nextInt(depth > 0 ? 5 : 4);
+        switch (choice) {
+            case 0:
+            case 1:
+                return pick(readableIdentifiers());
+            case 2:
+            case 3:
+                return String.valueOf(random.nextInt(20));
+            default:
+                return "(" + expression(depth - 1) + ")";
+        }
+    }
+
+    /** A non-zero constant operand: a literal or a declared constant. */
+    private String divisor() {
+        if (random.nextBoolean()) {
+            List<String> consts = new ArrayList<>();
+            for (Scope scope : scopes) consts.addAll(scope.consts);
+            return pick(consts);
+        }
+        return String.valueOf(1 + random.nextInt(9));
+    }
+
+    private List<String> assignableVars() {
+        List<String> vars = new ArrayList<>();
+        for (Scope scope : scopes) {
+            for (String var : scope.vars) {
+                if (!var.equals("fuel")) vars.add(var);
+            }
+        }
+        return vars;
+    }
+
+    private List<String> readableIdentifiers() {
+        List<String> ids = new ArrayList<>();
+        for (Scope scope : scopes) {
+            ids.addAll(scope.consts);
+            ids.addAll(scope.vars);
+            ids.addAll(scope.counters);
+        }
+        return ids;
+    }
+
+    // --- Output helpers ---
+
+    private String newName(String prefix) {
+        return prefix + (nameCounter++);
+    }
+
+    private String pick(List<String> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    /** Keywords are case-insensitive: mix upper and lower case to exercise the lexer. */
+    private String keywordText(String keyword) {
+        return random.nextInt(4) == 0 ? keyword.toUpperCase() : keyword;
+    }
+
+    private void keyword(String keyword) throws IOException {
+        write(keywordText(keyword));
+    }
+
+    private void indent(int level) throws IOException {
+        for (int i = 0; i < level; i++) write("  ");
+    }
+
+    private void newline() throws IOException {
+        write("\n");
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text);
+        written += text.length();
+    }
+}
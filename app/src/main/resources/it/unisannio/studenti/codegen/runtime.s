@@ -0,0 +1,232 @@
+
+# --- PL/0 I/O runtime, appended to every generated program ---
+#
+# Calling convention: the argument and the result are in %rax; every other
+# register is preserved except %rdx and %r10, and the stack needs no
+# particular alignment. No C library function is called.
+#
+#   pl0_write  writes %rax in decimal followed by a newline
+#   pl0_read   returns in %rax the next integer of the input, saturated to
+#              64 bits; at the end of the input, or before something that is
+#              not an integer, returns %rax unchanged (as scanf("%ld") leaves
+#              the variable)
+#   pl0_flush  writes the buffered output; main calls it before returning
+#
+# The output is buffered as stdio does: written every 4096 bytes when the
+# standard output is a file or a pipe, after every line when it is a terminal.
+# The input is read 64 KiB at a time.
+
+	.section .bss
+	.align 16
+.Lout_buffer: .skip 4096
+.Lin_buffer: .skip 65536
+.Ltermios: .skip 64
+
+	.section .data
+	.align 8
+.Lout_length: .quad 0
+.Lout_mode: .quad -1		# -1 not known yet, 0 block buffered, 1 line buffered
+.Lin_position: .quad 0
+.Lin_end: .quad 0
+.Lin_eof: .quad 0
+
+	.section .text
+	.global pl0_write
+pl0_write:
+	push %rcx
+	push %rsi
+	push %rdi
+	sub $32, %rsp
+	# Digits are stored backward, from the newline at 31(%rsp)
+	movb $10, 31(%rsp)
+	lea 31(%rsp), %rdi
+	mov %rax, %rsi			# Sign, tested after the digits
+	test %rax, %rax
+	jns 1f
+	neg %rax			# The minimum stays 2^63 as an unsigned number
+1:	mov %rax, %rcx
+	movabs $0xCCCCCCCCCCCCCCCD, %r10	# ceil(2^67 / 10)
+2:	mov %rcx, %rax
+	mul %r10
+	shr $3, %rdx			# Quotient by 10
+	lea (%rdx,%rdx,4), %rax
+	add %rax, %rax
+	sub %rax, %rcx			# Remainder
+	add $48, %cl			# '0'
+	dec %rdi
+	mov %cl, (%rdi)
+	mov %rdx, %rcx
+	test %rcx, %rcx
+	jnz 2b
+	test %rsi, %rsi
+	jns 3f
+	dec %rdi
+	movb $45, (%rdi)		# '-'
+3:	lea 32(%rsp), %rcx
+	sub %rdi, %rcx			# Length
+	mov .Lout_length(%rip), %rdx
+	lea .Lout_buffer(%rip), %rsi
+4:	movzbl (%rdi), %eax
+	mov %al, (%rsi,%rdx)
+	inc %rdi
+	inc %rdx
+	cmp $4096, %rdx
+	jne 5f
+	mov %rdx, .Lout_length(%rip)
+	call pl0_flush			# A full buffer is written, as stdio does
+	xor %edx, %edx
+5:	dec %rcx
+	jnz 4b
+	mov %rdx, .Lout_length(%rip)
+	mov .Lout_mode(%rip), %rax
+	test %rax, %rax
+	jns 6f
+	call .Ldetect_terminal
+6:	test %rax, %rax
+	jz 7f
+	call pl0_flush
+7:	add $32, %rsp
+	pop %rdi
+	pop %rsi
+	pop %rcx
+	ret
+
+# Sets and returns in %rax the output mode: 1 if the standard output is a terminal
+.Ldetect_terminal:
+	push %rcx
+	push %rsi
+	push %rdi
+	push %r11
+	mov $16, %eax			# ioctl(1, TCGETS, &termios)
+	mov $1, %edi
+	mov $0x5401, %esi
+	lea .Ltermios(%rip), %rdx
+	syscall
+	test %rax, %rax
+	sete %al
+	movzbl %al, %eax
+	mov %rax, .Lout_mode(%rip)
+	pop %r11
+	pop %rdi
+	pop %rsi
+	pop %rcx
+	ret
+
+	.global pl0_flush
+pl0_flush:
+	push %rcx
+	push %rsi
+	push %rdi
+	push %r11
+	lea .Lout_buffer(%rip), %rsi
+	mov .Lout_length(%rip), %rdx
+1:	test %rdx, %rdx
+	jz 3f
+	mov $1, %eax			# write(1, buffer, length)
+	mov $1, %edi
+	syscall
+	test %rax, %rax
+	js 2f
+	add %rax, %rsi
+	sub %rax, %rdx
+	jmp 1b
+2:	cmp $-4, %rax			# Interrupted: retry, other errors drop the output
+	je 1b
+3:	movq $0, .Lout_length(%rip)
+	pop %r11
+	pop %rdi
+	pop %rsi
+	pop %rcx
+	ret
+
+	.global pl0_read
+pl0_read:
+	push %rcx
+	push %rsi
+	push %rdi
+	push %r8
+	mov %rax, %r8			# Returned if no integer is read
+	# Skip white space: ' ' and '\t' to '\r'
+1:	call .Lpeek
+	cmp $32, %eax
+	je 2f
+	lea -9(%rax), %edx
+	cmp $4, %edx
+	ja 3f
+2:	incq .Lin_position(%rip)
+	jmp 1b
+	# Optional sign
+3:	xor %esi, %esi			# 1 if negative
+	cmp $45, %eax			# '-'
+	jne 4f
+	mov $1, %esi
+	jmp 5f
+4:	cmp $43, %eax			# '+'
+	jne 6f
+5:	incq .Lin_position(%rip)
+	call .Lpeek
+6:	sub $48, %eax			# Digit value; -1 (end of input) fails the test too
+	cmp $9, %eax
+	ja 10f
+	xor %ecx, %ecx			# Magnitude
+	xor %edi, %edi			# 1 after an overflow
+7:	incq .Lin_position(%rip)
+	imul $10, %rcx, %rcx
+	jno 8f
+	mov $1, %edi
+8:	add %rax, %rcx
+	jno 9f
+	mov $1, %edi
+9:	call .Lpeek
+	sub $48, %eax
+	cmp $9, %eax
+	jbe 7b
+	mov %rcx, %r8
+	test %esi, %esi
+	jz 11f
+	neg %r8
+11:	test %edi, %edi
+	jz 10f
+	movabs $0x7FFFFFFFFFFFFFFF, %r8	# Saturated, plus 1 if negative
+	add %rsi, %r8
+10:	mov %r8, %rax
+	pop %r8
+	pop %rdi
+	pop %rsi
+	pop %rcx
+	ret
+
+# Returns in %rax the next input byte without consuming it, -1 at the end of the input
+.Lpeek:
+	mov .Lin_position(%rip), %rax
+	cmp .Lin_end(%rip), %rax
+	je 1f
+	lea .Lin_buffer(%rip), %rdx
+	movzbl (%rdx,%rax), %eax
+	ret
+1:	cmpq $0, .Lin_eof(%rip)
+	jne 4f
+	push %rcx
+	push %rsi
+	push %rdi
+	push %r11
+2:	xor %eax, %eax			# read(0, buffer, size)
+	xor %edi, %edi
+	lea .Lin_buffer(%rip), %rsi
+	mov $65536, %edx
+	syscall
+	cmp $-4, %rax			# Interrupted: retry
+	je 2b
+	pop %r11
+	pop %rdi
+	pop %rsi
+	pop %rcx
+	test %rax, %rax
+	jle 3f
+	mov %rax, .Lin_end(%rip)
+	movq $0, .Lin_position(%rip)
+	movzbl .Lin_buffer(%rip), %eax
+	ret
+3:	movq $1, .Lin_eof(%rip)		# The end of the input, or an error, is final
+4:	mov $-1, %rax
+	ret